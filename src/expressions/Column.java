@@ -0,0 +1,25 @@
+package expressions;
+
+/**
+ * The value of column index in the row being evaluated. It has no value
+ * on its own; formulas containing it are evaluated over whole columns
+ * with Program.evaluate(int[][], int[]).
+ */
+class Column implements Expr {
+  private final int index;
+
+  public Column(int index) { this.index = index; }
+
+  public int evaluate() {
+    throw new IllegalStateException("column " + index
+        + " has no value without a row; use Program.compile(e).evaluate(int[][], int[])");
+  }
+  public int apply(int l, int r) { return evaluate(); }
+  public long size() { return 1; }
+  public void preorder() { System.out.println("Column(" + index + ")"); }
+  public void postorder() { System.out.println("Column(" + index + ")"); }
+  public void flatten(Program.Builder b) { b.column(index); }
+  public String label() { return "Column(" + index + ")"; }
+  public Expr left() { return null; }
+  public Expr right() { return null; }
+}
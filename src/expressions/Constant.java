@@ -0,0 +1,17 @@
+package expressions;
+
+class Constant implements Expr {
+  private int val = 0;
+
+  public Constant(int w) { val = w; }
+
+  public int evaluate() { return val; }
+  public int apply(int l, int r) { return val; }
+  public long size() { return 1; }
+  public void preorder() { System.out.println("Const(" + val + ")"); }
+  public void postorder() { System.out.println("Const(" + val + ")"); }
+  public void flatten(Program.Builder b) { b.constant(val); }
+  public String label() { return "Const(" + val + ")"; }
+  public Expr left() { return null; }
+  public Expr right() { return null; }
+}
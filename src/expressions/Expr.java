@@ -0,0 +1,27 @@
+package expressions;
+
+import java.io.IOException;
+
+interface Expr {
+  void preorder();
+  void postorder();
+  int evaluate();
+  /** Hands this node to the builder; see Program.Builder. */
+  void flatten(Program.Builder b);
+  /** Nodes in this subtree; computed once at construction. */
+  long size();
+  /** This node's value given the values of its operands; a leaf ignores them. */
+  int apply(int l, int r);
+  /** The line preorder() and postorder() print for this node. */
+  String label();
+  /** Left operand, or null for a leaf. */
+  Expr left();
+  /** Right operand, or null for a leaf. */
+  Expr right();
+
+  /** Like preorder(), but iterative and handing each label to sink; see Traversal. */
+  default void preorder(Traversal.Sink sink) throws IOException { Traversal.preorder(this, sink); }
+
+  /** Like postorder(), but iterative and handing each label to sink; see Traversal. */
+  default void postorder(Traversal.Sink sink) throws IOException { Traversal.postorder(this, sink); }
+}
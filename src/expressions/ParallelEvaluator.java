@@ -0,0 +1,83 @@
+package expressions;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates large trees on a ForkJoinPool. From a node larger than the
+ * threshold the current thread walks down into the larger operand, in a
+ * loop rather than by recursion, so deep chains cannot overflow its stack.
+ * The other operand is forked as a task if it is larger than the
+ * threshold too and evaluated in place otherwise; since a forked operand
+ * is at most half its parent, tasks nest only logarithmically deep.
+ * Subtrees up to the threshold use the plain recursive evaluate(), so no
+ * thread recurses deeper than the threshold.
+ * Subtree sizes come from Expr.size(), which every node computes once
+ * when it is built. Results, including ArithmeticException on division
+ * by zero, are those of evaluate().
+ */
+final class ParallelEvaluator {
+
+  /** Smallest subtree worth a task of its own; also bounds recursion depth. */
+  static final long DEFAULT_THRESHOLD = 1 << 12;
+
+  private final ForkJoinPool pool;
+  private final long threshold;
+
+  public ParallelEvaluator() { this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD); }
+
+  public ParallelEvaluator(ForkJoinPool pool, long threshold) {
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+
+  public int evaluate(Expr e) { return pool.invoke(new Task(e)); }
+
+  /** Evaluates e in the current thread, forking large side operands. */
+  private int compute(Expr e) {
+    Expr[] spine = new Expr[16];
+    Task[] forked = new Task[16];
+    int[] values = new int[16];
+    boolean[] wentLeft = new boolean[16];
+    int depth = 0;
+    Expr n = e;
+    while (n.size() > threshold && n.left() != null) {
+      if (depth == spine.length) {
+        spine = Arrays.copyOf(spine, depth << 1);
+        forked = Arrays.copyOf(forked, depth << 1);
+        values = Arrays.copyOf(values, depth << 1);
+        wentLeft = Arrays.copyOf(wentLeft, depth << 1);
+      }
+      boolean left = n.left().size() >= n.right().size();
+      Expr other = left ? n.right() : n.left();
+      spine[depth] = n;
+      wentLeft[depth] = left;
+      if (other.size() > threshold) {
+        forked[depth] = new Task(other);
+        forked[depth].fork();
+      } else {
+        values[depth] = other.evaluate();
+      }
+      depth ++;
+      n = left ? n.left() : n.right();
+    }
+    int v = n.evaluate();
+    while (depth > 0) {
+      depth --;
+      int o = forked[depth] != null ? forked[depth].join() : values[depth];
+      v = wentLeft[depth] ? spine[depth].apply(v, o) : spine[depth].apply(o, v);
+    }
+    return v;
+  }
+
+  private final class Task extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private final Expr e;
+
+    Task(Expr e) { this.e = e; }
+
+    protected Integer compute() { return ParallelEvaluator.this.compute(e); }
+  }
+}
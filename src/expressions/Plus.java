@@ -0,0 +1,34 @@
+package expressions;
+
+class Plus implements Expr {
+  final Expr lt, rt;
+  private final long size;
+
+  public Plus(Expr l, Expr r) { lt = l; rt = r; size = 1 + l.size() + r.size(); }
+
+  public int evaluate() { return lt.evaluate() + rt.evaluate();}
+
+  public int apply(int l, int r) { return l + r; }
+
+  public long size() { return size; }
+
+  public void preorder() {
+    System.out.println("Plus");
+    lt.preorder();
+    rt.preorder();
+  }
+
+  public void postorder() {
+    lt.postorder();
+    rt.postorder();
+    System.out.println("Plus");
+  }
+
+  public void flatten(Program.Builder b) { b.node(Program.PLUS, lt, rt); }
+
+  public String label() { return "Plus"; }
+
+  public Expr left() { return lt; }
+
+  public Expr right() { return rt; }
+}
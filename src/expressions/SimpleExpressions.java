@@ -1,5 +1,11 @@
 package expressions;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 class SimpleExpressions {
 
   public static void main(String[] args) {
@@ -26,104 +32,19 @@ class SimpleExpressions {
 
     System.out.println("result = " + n.evaluate());
     System.out.println("result = " + p.evaluate());
+    System.out.println("result = " + Program.compile(p).evaluate());
+    System.out.println("result = " + new ParallelEvaluator().evaluate(p));
 
     n.preorder();
     n.postorder();
-  }
-}
-
-interface Expr {
-  void preorder();
-  void postorder();
-  int evaluate();
-}
-
-class Constant implements Expr {
-  private int val = 0;
-
-  public Constant(int w) { val = w; }
-
-  public int evaluate() { return val; }
-  public void preorder() { System.out.println("Const(" + val + ")"); }
-  public void postorder() { System.out.println("Const(" + val + ")"); }
-}
-
-class Plus implements Expr {
-  Expr lt, rt;
-
-  public Plus(Expr l, Expr r) { lt = l; rt = r; }
-
-  public int evaluate() { return lt.evaluate() + rt.evaluate();}
-
-  public void preorder() {
-    System.out.println("Plus");
-    lt.preorder();
-    rt.preorder();
-  }
-
-  public void postorder() {
-    lt.postorder();
-    rt.postorder();
-    System.out.println("Plus");
-  }
-}
-
-class Minus implements Expr {
-  Expr lt,rt;
-
-  public Minus(Expr l, Expr r) { lt = l; rt = r; }
-
-  public int evaluate() { return lt.evaluate() - rt.evaluate(); }
-
-  public void preorder() {
-    System.out.println("Minus");
-    lt.preorder();
-    rt.preorder();
-  }
-
-  public void postorder() {
-    lt.postorder();
-    rt.postorder();
-    System.out.println("Minus");
-  }
-}
-
-class Times implements Expr {
-  Expr lt, rt;
-
-  public Times(Expr l, Expr r) { lt = l; rt = r; }
-
-  public int evaluate() { return lt.evaluate() *rt.evaluate();}
-
-  public void preorder() {
-    System.out.println("Times");
-    lt.preorder();
-    rt.preorder();
-  }
-
-  public void postorder() {
-    lt.postorder();
-    rt.postorder();
-    System.out.println("Times");
-  }
-}
-
-class Div implements Expr {
-  Expr lt, rt;
-
-  public Div(Expr l, Expr r) { lt = l; rt = r; }
-
-  public int evaluate() { return lt.evaluate() / rt.evaluate();}
-
-  public void preorder() {
-    System.out.println("Div");
-    lt.preorder();
-    rt.preorder();
-  }
 
-  public void postorder() {
-    lt.postorder();
-    rt.postorder();
-    System.out.println("Div");
+    try {
+      Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+      n.preorder(Traversal.lines(out));
+      n.postorder(Traversal.lines(out));
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 }
@@ -0,0 +1,34 @@
+package expressions;
+
+class Times implements Expr {
+  final Expr lt, rt;
+  private final long size;
+
+  public Times(Expr l, Expr r) { lt = l; rt = r; size = 1 + l.size() + r.size(); }
+
+  public int evaluate() { return lt.evaluate() *rt.evaluate();}
+
+  public int apply(int l, int r) { return l * r; }
+
+  public long size() { return size; }
+
+  public void preorder() {
+    System.out.println("Times");
+    lt.preorder();
+    rt.preorder();
+  }
+
+  public void postorder() {
+    lt.postorder();
+    rt.postorder();
+    System.out.println("Times");
+  }
+
+  public void flatten(Program.Builder b) { b.node(Program.TIMES, lt, rt); }
+
+  public String label() { return "Times"; }
+
+  public Expr left() { return lt; }
+
+  public Expr right() { return rt; }
+}
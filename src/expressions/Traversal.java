@@ -0,0 +1,84 @@
+package expressions;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Preorder and postorder traversals that print the same lines as
+ * Expr.preorder() and Expr.postorder(), but walk the tree with an explicit
+ * stack, so depth is limited by memory rather than by the thread stack,
+ * and hand each line to a Sink instead of System.out. With lines() over a
+ * BufferedWriter a million-node listing is written without a flush per
+ * line.
+ */
+final class Traversal {
+
+  /** Receives one node label at a time, in traversal order. */
+  interface Sink {
+    void node(String label) throws IOException;
+  }
+
+  private static final String EOL = System.getProperty("line.separator");
+
+  private Traversal() { }
+
+  /** A sink writing each label and a line separator to out; pass a buffered writer and flush it afterwards. */
+  public static Sink lines(final Writer out) {
+    return new Sink() {
+      public void node(String label) throws IOException {
+        out.write(label);
+        out.write(EOL);
+      }
+    };
+  }
+
+  public static void preorder(Expr e, Sink sink) throws IOException {
+    Stack stack = new Stack();
+    stack.push(e);
+    while (stack.size > 0) {
+      Expr next = stack.pop();
+      sink.node(next.label());
+      if (next.right() != null) { stack.push(next.right()); }
+      if (next.left() != null) { stack.push(next.left()); }
+    }
+  }
+
+  /** An operator is pushed again under a null marker and reported when the marker comes back up. */
+  public static void postorder(Expr e, Sink sink) throws IOException {
+    Stack stack = new Stack();
+    stack.push(e);
+    while (stack.size > 0) {
+      Expr next = stack.pop();
+      if (next == null) {
+        sink.node(stack.pop().label());
+      } else if (next.left() == null && next.right() == null) {
+        sink.node(next.label());
+      } else {
+        stack.push(next);
+        stack.push(null);
+        if (next.right() != null) { stack.push(next.right()); }
+        if (next.left() != null) { stack.push(next.left()); }
+      }
+    }
+  }
+
+  private static final class Stack {
+    Expr[] items = new Expr[16];
+    int size;
+
+    void push(Expr e) {
+      if (size == items.length) {
+        Expr[] bigger = new Expr[size << 1];
+        System.arraycopy(items, 0, bigger, 0, size);
+        items = bigger;
+      }
+      items[size ++] = e;
+    }
+
+    Expr pop() {
+      Expr e = items[-- size];
+      items[size] = null;
+      return e;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package exprfactory;
+
+class AltExprFactory implements ExprFactory {
+
+	@Override
+	public Expr constant(final int value) {
+		return new Expr() {
+			public int evaluate() { return value; }
+			public void preorder() { System.out.println("Const(" + value + ")"); }
+			public void postorder() { System.out.println("Const(" + value + ")"); }
+			public void flatten(Program.Builder b) { b.constant(value); }
+		};
+	}
+
+	@Override
+	public Expr div(Expr left, Expr right) {
+		return new CompositeExpr(CompositeExpr.Type.DIV, left, right);
+	}
+
+	@Override
+	public Expr minus(Expr left, Expr right) {
+		return new CompositeExpr(CompositeExpr.Type.MINUS, left, right);
+	}
+
+	@Override
+	public Expr plus(Expr left, Expr right) {
+		return new CompositeExpr(CompositeExpr.Type.PLUS, left, right);
+	}
+
+	@Override
+	public Expr times(Expr left, Expr right) {
+		return new CompositeExpr(CompositeExpr.Type.TIMES, left, right);
+	}
+	
+	private static class CompositeExpr implements Expr {
+		
+		public static enum Type { DIV, MINUS, PLUS, TIMES }
+		
+		public CompositeExpr(Type type, Expr left, Expr right) { 
+			this.type = type;
+			this.left = left;
+			this.right = right;
+		}
+		
+		public int evaluate() {
+			int l = left.evaluate();
+			int r = right.evaluate();
+			switch (type) {
+			case DIV: return l / r;
+			case MINUS: return l - r;
+			case PLUS: return l + r;
+			case TIMES: return l * r;
+			}
+			throw new RuntimeException("this should never happen");
+		}
+		
+		public void preorder() {
+			System.out.println(type);
+			left.preorder();
+			right.preorder();
+		}
+
+		public void postorder() {
+			left.postorder();
+			right.postorder();
+			System.out.println(type);
+		}
+
+		public void flatten(Program.Builder b) {
+			switch (type) {
+			case DIV: b.node(Program.DIV, left, right); return;
+			case MINUS: b.node(Program.MINUS, left, right); return;
+			case PLUS: b.node(Program.PLUS, left, right); return;
+			case TIMES: b.node(Program.TIMES, left, right); return;
+			}
+			throw new RuntimeException("this should never happen");
+		}
+		
+		private Type type;
+		
+		private Expr left, right;
+	}
+}
@@ -0,0 +1,169 @@
+package exprfactory;
+
+class DefaultExprFactory implements ExprFactory {
+
+	@Override
+	public Expr constant(int value) {
+		return new Constant(value);
+	}
+	
+	@Override
+	public Expr div(Expr left, Expr right) {
+		return new Div(left, right);
+	}
+
+	@Override
+	public Expr minus(Expr left, Expr right) {
+		return new Minus(left, right);
+	}
+
+	@Override
+	public Expr plus(Expr left, Expr right) {
+		return new Plus(left, right);
+	}
+
+	@Override
+	public Expr times(Expr left, Expr right) {
+		return new Times(left, right);
+	}
+
+	private class Constant implements Expr {
+		private int val = 0;
+
+		public Constant(int w) {
+			val = w;
+		}
+
+		public int evaluate() {
+			return val;
+		}
+
+		public void preorder() {
+			System.out.println("Const(" + val + ")");
+		}
+
+		public void postorder() {
+			System.out.println("Const(" + val + ")");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.constant(val);
+		}
+	}
+
+	private class Plus implements Expr {
+		Expr lt, rt;
+
+		public Plus(Expr l, Expr r) {
+			lt = l;
+			rt = r;
+		}
+
+		public int evaluate() {
+			return lt.evaluate() + rt.evaluate();
+		}
+
+		public void preorder() {
+			System.out.println("Plus");
+			lt.preorder();
+			rt.preorder();
+		}
+
+		public void postorder() {
+			lt.postorder();
+			rt.postorder();
+			System.out.println("Plus");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.node(Program.PLUS, lt, rt);
+		}
+	}
+
+	private class Minus implements Expr {
+		Expr lt, rt;
+
+		public Minus(Expr l, Expr r) {
+			lt = l;
+			rt = r;
+		}
+
+		public int evaluate() {
+			return lt.evaluate() - rt.evaluate();
+		}
+
+		public void preorder() {
+			System.out.println("Minus");
+			lt.preorder();
+			rt.preorder();
+		}
+
+		public void postorder() {
+			lt.postorder();
+			rt.postorder();
+			System.out.println("Minus");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.node(Program.MINUS, lt, rt);
+		}
+	}
+
+	private class Times implements Expr {
+		Expr lt, rt;
+
+		public Times(Expr l, Expr r) {
+			lt = l;
+			rt = r;
+		}
+
+		public int evaluate() {
+			return lt.evaluate() * rt.evaluate();
+		}
+
+		public void preorder() {
+			System.out.println("Times");
+			lt.preorder();
+			rt.preorder();
+		}
+
+		public void postorder() {
+			lt.postorder();
+			rt.postorder();
+			System.out.println("Times");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.node(Program.TIMES, lt, rt);
+		}
+	}
+
+	private class Div implements Expr {
+		Expr lt, rt;
+
+		public Div(Expr l, Expr r) {
+			lt = l;
+			rt = r;
+		}
+
+		public int evaluate() {
+			return lt.evaluate() / rt.evaluate();
+		}
+
+		public void preorder() {
+			System.out.println("Div");
+			lt.preorder();
+			rt.preorder();
+		}
+
+		public void postorder() {
+			lt.postorder();
+			rt.postorder();
+			System.out.println("Div");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.node(Program.DIV, lt, rt);
+		}
+	}
+}
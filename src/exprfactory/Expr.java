@@ -0,0 +1,12 @@
+package exprfactory;
+
+interface Expr {
+	void preorder();
+
+	void postorder();
+
+	int evaluate();
+
+	/** Hands this node to the builder; see Program.Builder. */
+	void flatten(Program.Builder b);
+}
@@ -0,0 +1,30 @@
+package exprfactory;
+
+interface ExprFactory {
+	Expr constant(int value);
+
+	Expr plus(Expr left, Expr right);
+
+	Expr minus(Expr left, Expr right);
+
+	Expr times(Expr left, Expr right);
+
+	Expr div(Expr left, Expr right);
+
+	/**
+	 * The value of column index in the row being evaluated. It has no value
+	 * on its own; formulas containing it are evaluated over whole columns
+	 * with Program.evaluate(int[][], int[]).
+	 */
+	default Expr column(final int index) {
+		return new Expr() {
+			public int evaluate() {
+				throw new IllegalStateException("column " + index
+						+ " has no value without a row; use Program.compile(e).evaluate(int[][], int[])");
+			}
+			public void preorder() { System.out.println("Column(" + index + ")"); }
+			public void postorder() { System.out.println("Column(" + index + ")"); }
+			public void flatten(Program.Builder b) { b.column(index); }
+		};
+	}
+}
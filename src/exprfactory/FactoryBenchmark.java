@@ -0,0 +1,73 @@
+package exprfactory;
+
+import java.util.Random;
+
+/**
+ * Times repeated evaluation of one randomly generated formula built by
+ * each factory, checks that all of them agree, and prints nanoseconds per
+ * evaluation for several rounds. The first SpecializingExprFactory round
+ * includes the one-time rewrite of its nodes.
+ * Usage: java exprfactory.FactoryBenchmark [depth] [evaluations]
+ */
+class FactoryBenchmark {
+
+	/** Keeps results alive so the JIT cannot drop the work. */
+	static volatile int blackhole;
+
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 14;
+		int evaluations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		String[] names = { "DefaultExprFactory", "AltExprFactory", "SpecializingExprFactory" };
+		ExprFactory[] factories = { new DefaultExprFactory(), new AltExprFactory(), new SpecializingExprFactory() };
+		Expr[] exprs = new Expr[factories.length];
+		for (int i = 0; i < factories.length; i++) {
+			exprs[i] = random(factories[i], depth, new Random(42));
+		}
+		int expected = exprs[0].evaluate();
+		System.out.println("result = " + expected);
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < exprs.length; i++) {
+				time(names[i], expected, evaluations, exprs[i]);
+			}
+			System.out.println();
+		}
+	}
+
+	static void time(String name, int expected, int evaluations, Expr e) {
+		int result = 0;
+		long start = System.nanoTime();
+		for (int k = 0; k < evaluations; k++) {
+			result = e.evaluate();
+		}
+		long nanos = System.nanoTime() - start;
+		if (result != expected) {
+			throw new IllegalStateException(name + " returned " + result + " instead of " + expected);
+		}
+		blackhole = result;
+		System.out.println(String.format("%-24s %10.1f ns/eval", name, (double) nanos / evaluations));
+	}
+
+	/**
+	 * A random formula of the given depth. Below the root some operands are
+	 * cut short to constants so all four operand shapes occur; divisors are
+	 * non-zero constants so evaluation never throws.
+	 */
+	static Expr random(ExprFactory f, int depth, Random random) {
+		if (depth <= 1) {
+			return f.constant(random.nextInt(2001) - 1000);
+		}
+		switch (random.nextInt(4)) {
+		case 0: return f.plus(operand(f, depth - 1, random), operand(f, depth - 1, random));
+		case 1: return f.minus(operand(f, depth - 1, random), operand(f, depth - 1, random));
+		case 2: return f.times(operand(f, depth - 1, random), operand(f, depth - 1, random));
+		default:
+			Expr left = operand(f, depth - 1, random);
+			int d = random.nextInt(19) - 9;
+			return f.div(left, f.constant(d == 0 ? 7 : d));
+		}
+	}
+
+	static Expr operand(ExprFactory f, int depth, Random random) {
+		return random.nextInt(5) == 0 ? random(f, 1, random) : random(f, depth, random);
+	}
+}
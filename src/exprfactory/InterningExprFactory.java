@@ -0,0 +1,230 @@
+package exprfactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A factory that never builds the same node twice. Constants in a small
+ * range are preallocated, operators on two constants are folded into a
+ * constant right away (except division by zero, which must still fail in
+ * evaluate()), and every other node is interned: asking again for the same
+ * operator over the same operand instances returns the existing node.
+ * The intern table is a concurrent map whose values are weak references,
+ * so nodes nobody uses any more can be collected; their entries are purged
+ * on later calls. Safe to use from many threads.
+ */
+class InterningExprFactory implements ExprFactory {
+
+	private static final int SMALL_MIN = -128, SMALL_MAX = 1023;
+	private static final Expr[] SMALL = new Expr[SMALL_MAX - SMALL_MIN + 1];
+	static {
+		for (int v = SMALL_MIN; v <= SMALL_MAX; v++) {
+			SMALL[v - SMALL_MIN] = new Constant(v);
+		}
+	}
+
+	private static final int CONST = 0, DIV = 1, MINUS = 2, PLUS = 3, TIMES = 4, COLUMN = 5;
+
+	private final ConcurrentHashMap<Key, Ref> table = new ConcurrentHashMap<Key, Ref>();
+	private final ReferenceQueue<Expr> stale = new ReferenceQueue<Expr>();
+
+	@Override
+	public Expr constant(int value) {
+		if (value >= SMALL_MIN && value <= SMALL_MAX) {
+			return SMALL[value - SMALL_MIN];
+		}
+		return intern(CONST, null, null, value);
+	}
+
+	@Override
+	public Expr column(int index) {
+		return intern(COLUMN, null, null, index);
+	}
+
+	@Override
+	public Expr div(Expr left, Expr right) {
+		if (left instanceof Constant && right instanceof Constant && value(right) != 0) {
+			return constant(value(left) / value(right));
+		}
+		return intern(DIV, left, right, 0);
+	}
+
+	@Override
+	public Expr minus(Expr left, Expr right) {
+		if (left instanceof Constant && right instanceof Constant) {
+			return constant(value(left) - value(right));
+		}
+		return intern(MINUS, left, right, 0);
+	}
+
+	@Override
+	public Expr plus(Expr left, Expr right) {
+		if (left instanceof Constant && right instanceof Constant) {
+			return constant(value(left) + value(right));
+		}
+		return intern(PLUS, left, right, 0);
+	}
+
+	@Override
+	public Expr times(Expr left, Expr right) {
+		if (left instanceof Constant && right instanceof Constant) {
+			return constant(value(left) * value(right));
+		}
+		return intern(TIMES, left, right, 0);
+	}
+
+	/** Number of interned nodes currently in the table. */
+	public int size() {
+		purge();
+		return table.size();
+	}
+
+	private static int value(Expr e) {
+		return ((Constant) e).val;
+	}
+
+	private Expr intern(int op, Expr left, Expr right, int value) {
+		purge();
+		Key key = new Key(op, left, right, value);
+		for (;;) {
+			Ref existing = table.get(key);
+			if (existing != null) {
+				Expr e = existing.get();
+				if (e != null) {
+					return e;
+				}
+				table.remove(key, existing);
+			}
+			Expr created = create(op, left, right, value);
+			if (table.putIfAbsent(key, new Ref(created, key, stale)) == null) {
+				return created;
+			}
+		}
+	}
+
+	private Expr create(int op, Expr left, Expr right, int value) {
+		switch (op) {
+		case CONST: return new Constant(value);
+		case COLUMN: return ExprFactory.super.column(value);
+		case DIV: return new Binary(Program.DIV, "Div", left, right);
+		case MINUS: return new Binary(Program.MINUS, "Minus", left, right);
+		case PLUS: return new Binary(Program.PLUS, "Plus", left, right);
+		case TIMES: return new Binary(Program.TIMES, "Times", left, right);
+		}
+		throw new RuntimeException("this should never happen");
+	}
+
+	private void purge() {
+		Reference<? extends Expr> r;
+		while ((r = stale.poll()) != null) {
+			Ref dead = (Ref) r;
+			table.remove(dead.key, dead);
+		}
+	}
+
+	/** Operator and operand identities; operands are compared with ==. */
+	private static final class Key {
+		final int op, value;
+		final Expr left, right;
+
+		Key(int op, Expr left, Expr right, int value) {
+			this.op = op;
+			this.left = left;
+			this.right = right;
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return op == k.op && left == k.left && right == k.right && value == k.value;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = op;
+			h = h * 31 + System.identityHashCode(left);
+			h = h * 31 + System.identityHashCode(right);
+			return h * 31 + value;
+		}
+	}
+
+	private static final class Ref extends WeakReference<Expr> {
+		final Key key;
+
+		Ref(Expr referent, Key key, ReferenceQueue<Expr> queue) {
+			super(referent, queue);
+			this.key = key;
+		}
+	}
+
+	private static final class Constant implements Expr {
+		private final int val;
+
+		public Constant(int w) {
+			val = w;
+		}
+
+		public int evaluate() {
+			return val;
+		}
+
+		public void preorder() {
+			System.out.println("Const(" + val + ")");
+		}
+
+		public void postorder() {
+			System.out.println("Const(" + val + ")");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.constant(val);
+		}
+	}
+
+	private static final class Binary implements Expr {
+		private final int op;
+		private final String name;
+		private final Expr lt, rt;
+
+		public Binary(int op, String name, Expr l, Expr r) {
+			this.op = op;
+			this.name = name;
+			lt = l;
+			rt = r;
+		}
+
+		public int evaluate() {
+			int l = lt.evaluate();
+			int r = rt.evaluate();
+			switch (op) {
+			case Program.DIV: return l / r;
+			case Program.MINUS: return l - r;
+			case Program.PLUS: return l + r;
+			case Program.TIMES: return l * r;
+			}
+			throw new RuntimeException("this should never happen");
+		}
+
+		public void preorder() {
+			System.out.println(name);
+			lt.preorder();
+			rt.preorder();
+		}
+
+		public void postorder() {
+			lt.postorder();
+			rt.postorder();
+			System.out.println(name);
+		}
+
+		public void flatten(Program.Builder b) {
+			b.node(op, lt, rt);
+		}
+	}
+}
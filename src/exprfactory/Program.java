@@ -0,0 +1,186 @@
+package exprfactory;
+
+import java.util.Arrays;
+
+/**
+ * An expression flattened into postfix code in one int array: CONST is
+ * followed by its operand, the operators take their operands from the
+ * stack. Evaluation is a single loop over the array with a primitive
+ * operand stack, so it needs no recursion and touches memory
+ * sequentially. A Program is immutable and can be evaluated from many
+ * threads at once. COLUMN, followed by a column index, reads a value of
+ * the current row; programs containing it are evaluated over whole
+ * columns with evaluate(int[][], int[]).
+ */
+final class Program {
+
+	static final int CONST = 0;
+	static final int PLUS = 1;
+	static final int MINUS = 2;
+	static final int TIMES = 3;
+	static final int DIV = 4;
+	static final int COLUMN = 5;
+
+	/** Rows evaluated together by evaluate(int[][], int[]). */
+	static final int CHUNK = 1024;
+
+	private final int[] code;
+	private final int maxStack;
+
+	private Program(int[] code, int maxStack) {
+		this.code = code;
+		this.maxStack = maxStack;
+	}
+
+	/** Flattens e without recursion, however deep it is. */
+	public static Program compile(Expr e) {
+		Builder b = new Builder();
+		b.push(e);
+		while (b.pending > 0) {
+			Expr next = b.exprs[-- b.pending];
+			if (next == null) {
+				b.emit(b.ops[b.pending]);
+			} else {
+				b.exprs[b.pending] = null;
+				next.flatten(b);
+			}
+		}
+		int[] code = new int[b.length];
+		System.arraycopy(b.code, 0, code, 0, b.length);
+		return new Program(code, b.maxDepth);
+	}
+
+	public int evaluate() {
+		return evaluate(new int[maxStack]);
+	}
+
+	/** Evaluates using the caller's scratch stack of at least stackSize() ints. */
+	public int evaluate(int[] stack) {
+		int[] code = this.code;
+		int sp = 0;
+		for (int pc = 0; pc < code.length; pc ++) {
+			switch (code[pc]) {
+			case CONST: stack[sp ++] = code[++ pc]; break;
+			case PLUS: sp --; stack[sp - 1] = stack[sp - 1] + stack[sp]; break;
+			case MINUS: sp --; stack[sp - 1] = stack[sp - 1] - stack[sp]; break;
+			case TIMES: sp --; stack[sp - 1] = stack[sp - 1] * stack[sp]; break;
+			case DIV: sp --; stack[sp - 1] = stack[sp - 1] / stack[sp]; break;
+			case COLUMN: throw new IllegalStateException("column " + code[pc + 1]
+					+ " has no value without a row; use evaluate(int[][], int[])");
+			default: throw new IllegalStateException("bad opcode " + code[pc] + " at " + pc);
+			}
+		}
+		return stack[0];
+	}
+
+	/**
+	 * Evaluates the program for every row, storing the value of row r in
+	 * result[r]; COLUMN i reads columns[i][r]. Rows are processed CHUNK at
+	 * a time with one array per stack slot, so each operator runs as one
+	 * plain loop over a chunk, which the JIT vectorizes, instead of one pass
+	 * over the code per row. Division by zero in any row throws
+	 * ArithmeticException, leaving result partly written.
+	 */
+	public void evaluate(int[][] columns, int[] result) {
+		int[] code = this.code;
+		int rows = result.length;
+		for (int pc = 0; pc < code.length; pc ++) {
+			if (code[pc] == COLUMN && columns[code[pc + 1]].length < rows) {
+				throw new IllegalArgumentException("column " + code[pc + 1] + " has fewer than " + rows + " rows");
+			}
+			if (code[pc] == CONST || code[pc] == COLUMN) { pc ++; }
+		}
+		int[][] stack = new int[maxStack][Math.min(CHUNK, rows)];
+		for (int from = 0; from < rows; from += CHUNK) {
+			int n = Math.min(CHUNK, rows - from);
+			int sp = 0;
+			for (int pc = 0; pc < code.length; pc ++) {
+				switch (code[pc]) {
+				case CONST: Arrays.fill(stack[sp ++], 0, n, code[++ pc]); break;
+				case COLUMN: System.arraycopy(columns[code[++ pc]], from, stack[sp ++], 0, n); break;
+				case PLUS: sp --; plus(stack[sp - 1], stack[sp], n); break;
+				case MINUS: sp --; minus(stack[sp - 1], stack[sp], n); break;
+				case TIMES: sp --; times(stack[sp - 1], stack[sp], n); break;
+				case DIV: sp --; div(stack[sp - 1], stack[sp], n); break;
+				default: throw new IllegalStateException("bad opcode " + code[pc] + " at " + pc);
+				}
+			}
+			System.arraycopy(stack[0], 0, result, from, n);
+		}
+	}
+
+	private static void plus(int[] a, int[] b, int n) {
+		for (int i = 0; i < n; i ++) { a[i] += b[i]; }
+	}
+
+	private static void minus(int[] a, int[] b, int n) {
+		for (int i = 0; i < n; i ++) { a[i] -= b[i]; }
+	}
+
+	private static void times(int[] a, int[] b, int n) {
+		for (int i = 0; i < n; i ++) { a[i] *= b[i]; }
+	}
+
+	private static void div(int[] a, int[] b, int n) {
+		for (int i = 0; i < n; i ++) { a[i] /= b[i]; }
+	}
+
+	public int stackSize() { return maxStack; }
+
+	public int length() { return code.length; }
+
+	/**
+	 * Collects code while Program.compile() walks the tree. A node either
+	 * emits a constant or calls node() to schedule its operator after its
+	 * operands; it never flattens its children itself.
+	 */
+	static final class Builder {
+		private Expr[] exprs = new Expr[16];
+		private int[] ops = new int[16];
+		private int pending;
+		private int[] code = new int[64];
+		private int length;
+		private int depth;
+		private int maxDepth;
+
+		public void constant(int value) {
+			emit(CONST);
+			code[length ++] = value;
+		}
+
+		public void column(int index) {
+			emit(COLUMN);
+			code[length ++] = index;
+		}
+
+		public void node(int op, Expr left, Expr right) {
+			push(null);
+			ops[pending - 1] = op;
+			push(right);
+			push(left);
+		}
+
+		private void push(Expr e) {
+			if (pending == exprs.length) {
+				Expr[] bigger = new Expr[pending << 1];
+				System.arraycopy(exprs, 0, bigger, 0, pending);
+				exprs = bigger;
+				int[] o = new int[pending << 1];
+				System.arraycopy(ops, 0, o, 0, pending);
+				ops = o;
+			}
+			exprs[pending ++] = e;
+		}
+
+		private void emit(int op) {
+			if (length + 2 > code.length) {
+				int[] bigger = new int[code.length << 1];
+				System.arraycopy(code, 0, bigger, 0, length);
+				code = bigger;
+			}
+			code[length ++] = op;
+			depth += op == CONST || op == COLUMN ? 1 : -1;
+			if (depth > maxDepth) { maxDepth = depth; }
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package exprfactory;
+
+/**
+ * Builds nodes that rewrite themselves the first time they are evaluated.
+ * Instead of one class that switches on the operator at every node, as
+ * AltExprFactory.CompositeExpr does, the first evaluate() replaces each
+ * operator node by a subclass specific to its operator and to the shape of
+ * its operands: constant op constant, constant op expression, expression
+ * op constant or expression op expression. Constant operands are then read
+ * from fields instead of being evaluated, and every evaluate() call site
+ * only ever sees the handful of classes that can actually occur there.
+ * Specialized nodes replace their unspecialized children in place, so only
+ * the root keeps one extra indirection. Printing and flatten() see the same
+ * tree before and after specialization.
+ */
+class SpecializingExprFactory implements ExprFactory {
+
+	private static final String[] NAMES = { "Const", "Plus", "Minus", "Times", "Div" };
+
+	@Override
+	public Expr constant(int value) {
+		return new Const(value);
+	}
+
+	@Override
+	public Expr div(Expr left, Expr right) {
+		return new Uninitialized(Program.DIV, left, right);
+	}
+
+	@Override
+	public Expr minus(Expr left, Expr right) {
+		return new Uninitialized(Program.MINUS, left, right);
+	}
+
+	@Override
+	public Expr plus(Expr left, Expr right) {
+		return new Uninitialized(Program.PLUS, left, right);
+	}
+
+	@Override
+	public Expr times(Expr left, Expr right) {
+		return new Uninitialized(Program.TIMES, left, right);
+	}
+
+	/** The node that should stand for e from now on. */
+	private static Expr resolve(Expr e) {
+		return e instanceof Node ? ((Node) e).specialize() : e;
+	}
+
+	private static Expr specialize(int op, Expr l, Expr r) {
+		boolean lc = l instanceof Const, rc = r instanceof Const;
+		switch (op) {
+		case Program.PLUS:
+			if (lc) { return rc ? new PlusCC(op, l, r) : new PlusCV(op, l, r); }
+			return rc ? new PlusVC(op, l, r) : new PlusVV(op, l, r);
+		case Program.MINUS:
+			if (lc) { return rc ? new MinusCC(op, l, r) : new MinusCV(op, l, r); }
+			return rc ? new MinusVC(op, l, r) : new MinusVV(op, l, r);
+		case Program.TIMES:
+			if (lc) { return rc ? new TimesCC(op, l, r) : new TimesCV(op, l, r); }
+			return rc ? new TimesVC(op, l, r) : new TimesVV(op, l, r);
+		case Program.DIV:
+			if (lc) { return rc ? new DivCC(op, l, r) : new DivCV(op, l, r); }
+			return rc ? new DivVC(op, l, r) : new DivVV(op, l, r);
+		}
+		throw new RuntimeException("this should never happen");
+	}
+
+	private static abstract class Node implements Expr {
+		Expr specialize() {
+			return this;
+		}
+	}
+
+	private static final class Const extends Node {
+		private final int val;
+
+		public Const(int w) {
+			val = w;
+		}
+
+		public int evaluate() {
+			return val;
+		}
+
+		public void preorder() {
+			System.out.println("Const(" + val + ")");
+		}
+
+		public void postorder() {
+			System.out.println("Const(" + val + ")");
+		}
+
+		public void flatten(Program.Builder b) {
+			b.constant(val);
+		}
+	}
+
+	private static abstract class Operator extends Node {
+		final int op;
+		final Expr left, right;
+
+		Operator(int op, Expr l, Expr r) {
+			this.op = op;
+			left = l;
+			right = r;
+		}
+
+		public void preorder() {
+			System.out.println(NAMES[op]);
+			left.preorder();
+			right.preorder();
+		}
+
+		public void postorder() {
+			left.postorder();
+			right.postorder();
+			System.out.println(NAMES[op]);
+		}
+
+		public void flatten(Program.Builder b) {
+			b.node(op, left, right);
+		}
+	}
+
+	/**
+	 * An operator node as built by the factory. Its first evaluate()
+	 * specializes the whole subtree below it and delegates from then on.
+	 * Racing threads may both specialize; they build equivalent trees and
+	 * the nodes are immutable, so either result is fine.
+	 */
+	private static final class Uninitialized extends Operator {
+		private Expr specialized;
+
+		Uninitialized(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			Expr s = specialized;
+			if (s == null) {
+				s = specialize();
+			}
+			return s.evaluate();
+		}
+
+		Expr specialize() {
+			Expr s = specialized;
+			if (s == null) {
+				s = SpecializingExprFactory.specialize(op, resolve(left), resolve(right));
+				specialized = s;
+			}
+			return s;
+		}
+	}
+
+	private static abstract class CC extends Operator {
+		final int a, b;
+
+		CC(int op, Expr l, Expr r) {
+			super(op, l, r);
+			a = ((Const) l).val;
+			b = ((Const) r).val;
+		}
+	}
+
+	private static abstract class CV extends Operator {
+		final int a;
+
+		CV(int op, Expr l, Expr r) {
+			super(op, l, r);
+			a = ((Const) l).val;
+		}
+	}
+
+	private static abstract class VC extends Operator {
+		final int b;
+
+		VC(int op, Expr l, Expr r) {
+			super(op, l, r);
+			b = ((Const) r).val;
+		}
+	}
+
+	private static abstract class VV extends Operator {
+		VV(int op, Expr l, Expr r) { super(op, l, r); }
+	}
+
+	private static final class PlusCC extends CC {
+		PlusCC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a + b;
+		}
+	}
+
+	private static final class PlusCV extends CV {
+		PlusCV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a + right.evaluate();
+		}
+	}
+
+	private static final class PlusVC extends VC {
+		PlusVC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() + b;
+		}
+	}
+
+	private static final class PlusVV extends VV {
+		PlusVV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() + right.evaluate();
+		}
+	}
+
+	private static final class MinusCC extends CC {
+		MinusCC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a - b;
+		}
+	}
+
+	private static final class MinusCV extends CV {
+		MinusCV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a - right.evaluate();
+		}
+	}
+
+	private static final class MinusVC extends VC {
+		MinusVC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() - b;
+		}
+	}
+
+	private static final class MinusVV extends VV {
+		MinusVV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() - right.evaluate();
+		}
+	}
+
+	private static final class TimesCC extends CC {
+		TimesCC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a * b;
+		}
+	}
+
+	private static final class TimesCV extends CV {
+		TimesCV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a * right.evaluate();
+		}
+	}
+
+	private static final class TimesVC extends VC {
+		TimesVC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() * b;
+		}
+	}
+
+	private static final class TimesVV extends VV {
+		TimesVV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() * right.evaluate();
+		}
+	}
+
+	private static final class DivCC extends CC {
+		DivCC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a / b;
+		}
+	}
+
+	private static final class DivCV extends CV {
+		DivCV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return a / right.evaluate();
+		}
+	}
+
+	private static final class DivVC extends VC {
+		DivVC(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() / b;
+		}
+	}
+
+	private static final class DivVV extends VV {
+		DivVV(int op, Expr l, Expr r) { super(op, l, r); }
+
+		public int evaluate() {
+			return left.evaluate() / right.evaluate();
+		}
+	}
+}
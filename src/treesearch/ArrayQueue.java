@@ -0,0 +1,7 @@
+package treesearch;
+
+/** FIFO driver on a circular array; drop-in replacement for Queue. */
+class ArrayQueue<Item> extends RingDeque<Item> {
+  public ArrayQueue() { }
+  public ArrayQueue(int capacity) { super(capacity); }
+}
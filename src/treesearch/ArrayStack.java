@@ -0,0 +1,11 @@
+package treesearch;
+
+/** LIFO driver on a circular array; drop-in replacement for Stack. */
+class ArrayStack<Item> extends RingDeque<Item> {
+  public ArrayStack() { }
+  public ArrayStack(int capacity) { super(capacity); }
+  public boolean add(Item item) {
+    addFirst(item);
+    return true;
+  }
+}
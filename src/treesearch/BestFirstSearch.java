@@ -0,0 +1,181 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Goal-directed best-first search over a tree. Nodes are expanded in order
+ * of g + h, where g is the accumulated step cost from the root and h an
+ * optional heuristic; with an admissible heuristic this is A*, without one
+ * it is uniform-cost search. The search stops as soon as a goal node is
+ * taken off the frontier and returns the path from the root to it.
+ *
+ * The search is an ordinary driven traversal: each node is wrapped in a
+ * Step that carries g, g + h and the step it came from, and the Steps are
+ * walked with Tree.iterator() over a Prique keyed on g + h, ties in
+ * discovery order. A goal node is recognized in children(), so it is
+ * never expanded.
+ *
+ * A beam width bounds the frontier: when it is exceeded the entry with the
+ * highest g + h is dropped, which keeps the frontier small but gives up
+ * completeness and optimality. A Step is reachable only from the frontier
+ * and from its descendants' parent links, so dropped and exhausted
+ * branches are garbage at once and the bookkeeping never exceeds the
+ * frontier times the depth. Not thread-safe; use one instance per thread.
+ */
+class BestFirstSearch<Item> {
+
+  public interface Goal<Item> {
+    boolean reached(Item item);
+  }
+
+  /** Cost of the edge from a node to one of its children; must be >= 0. */
+  public interface StepCost<Item> {
+    double cost(Item from, Item to);
+  }
+
+  /** Estimated remaining cost to a goal; never overestimate for optimal paths. */
+  public interface Heuristic<Item> {
+    double estimate(Item item);
+  }
+
+  private static final int UNBOUNDED = 0;
+
+  private final Goal<? super Item> goal;
+  private final StepCost<? super Item> cost;
+  private final Heuristic<? super Item> heuristic;
+  private final int beamWidth;
+
+  private int expanded;
+  private Step found;
+
+  public BestFirstSearch(Goal<? super Item> goal, StepCost<? super Item> cost) {
+    this(goal, cost, null, UNBOUNDED);
+  }
+
+  public BestFirstSearch(Goal<? super Item> goal, StepCost<? super Item> cost,
+      Heuristic<? super Item> heuristic) {
+    this(goal, cost, heuristic, UNBOUNDED);
+  }
+
+  /** A heuristic of null means h = 0; a beam width of 0 means unbounded. */
+  public BestFirstSearch(Goal<? super Item> goal, StepCost<? super Item> cost,
+      Heuristic<? super Item> heuristic, int beamWidth) {
+    if (goal == null || cost == null) { throw new NullPointerException(); }
+    if (beamWidth < 0) { throw new IllegalArgumentException("beamWidth < 0"); }
+    this.goal = goal;
+    this.cost = cost;
+    this.heuristic = heuristic;
+    this.beamWidth = beamWidth;
+  }
+
+  /**
+   * Returns the nodes from root to the first goal reached, or null if the
+   * frontier runs out first.
+   */
+  public List<Tree<Item>> search(Tree<Item> root) {
+    expanded = 0;
+    found = null;
+    if (root.isEmpty()) { return null; }
+    Prique<Tree<Item>> frontier = new Frontier<Item>(beamWidth);
+    for (Iterator<Tree<Item>> i = new Step(root, null, 0).iterator(frontier); i.hasNext(); ) {
+      i.next();
+      if (found != null) { return found.path(); }
+    }
+    return null;
+  }
+
+  /** Nodes expanded by the last search. */
+  public int expanded() { return expanded; }
+
+  /** Cost of the path found by the last search, or NaN if none was found. */
+  public double pathCost() { return found == null ? Double.NaN : found.g; }
+
+  /** A Prique on g + h that drops its worst entry beyond the beam width. */
+  private static final class Frontier<Item> extends Prique<Tree<Item>> {
+    private final int width;
+
+    Frontier(int width) {
+      super(new Prique.Cost<Tree<Item>>() {
+        public double cost(Tree<Item> step) { return ((BestFirstSearch<?>.Step) step).f; }
+      });
+      this.width = width;
+    }
+
+    public boolean add(Tree<Item> step) {
+      super.add(step);
+      if (width != UNBOUNDED && size() > width) { removeWorst(); }
+      return true;
+    }
+  }
+
+  /** A node of the searched tree together with its path cost and parent. */
+  private final class Step implements Tree<Item> {
+    final Tree<Item> node;
+    final Step parent;
+    final double g, f;
+
+    Step(Tree<Item> node, Step parent, double g) {
+      this.node = node;
+      this.parent = parent;
+      this.g = g;
+      this.f = heuristic == null ? g : g + heuristic.estimate(node.data());
+    }
+
+    public boolean isEmpty() { return false; }
+    public int size() { return node.size(); }
+    public Item data() { return node.data(); }
+
+    /** Called as the step leaves the frontier; a goal ends the search instead of expanding. */
+    public Iterator<Tree<Item>> children() {
+      final Item item = node.data();
+      if (goal.reached(item)) {
+        found = this;
+        return Collections.<Tree<Item>>emptyIterator();
+      }
+      expanded ++;
+      final Iterator<Tree<Item>> i = node.children();
+      return new Iterator<Tree<Item>>() {
+        private Tree<Item> next = advance();
+        private Tree<Item> advance() {
+          while (i.hasNext()) {
+            Tree<Item> child = i.next();
+            if (! child.isEmpty()) { return child; }
+          }
+          return null;
+        }
+        public boolean hasNext() { return next != null; }
+        public Tree<Item> next() throws NoSuchElementException {
+          if (next == null) { throw new NoSuchElementException(); }
+          Tree<Item> child = next;
+          next = advance();
+          return new Step(child, Step.this, g + cost.cost(item, child.data()));
+        }
+        public void remove() throws UnsupportedOperationException {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    List<Tree<Item>> path() {
+      List<Tree<Item>> result = new ArrayList<Tree<Item>>();
+      for (Step s = this; s != null; s = s.parent) { result.add(s.node); }
+      Collections.reverse(result);
+      return result;
+    }
+
+    public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
+      return new NodeIterator<Item>(this, driver);
+    }
+    public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+      return new NodeIterator<Item>(this, driver, listener);
+    }
+    public Iterator<Tree<Item>> iterator() {
+      return iterator(new Stack<Tree<Item>>());
+    }
+  }
+}
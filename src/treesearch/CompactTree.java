@@ -0,0 +1,146 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+
+/**
+ * A read-only tree kept as a struct of arrays. Nodes are numbered in
+ * preorder and the topology lives in three int arrays (first child, next
+ * sibling, subtree size) with the payloads in one Object array, so a node
+ * costs about 16 bytes plus its payload and a subtree occupies a contiguous
+ * index range. A CompactTree object is a light view of one node in that
+ * store; views are created on demand by children().
+ * Empty subtrees of the source tree are dropped during conversion.
+ */
+class CompactTree<Item> implements Tree<Item> {
+
+  static final int NONE = -1;
+
+  /** The shared arrays behind all views of one tree. */
+  static final class Store {
+    final int[] firstChild;
+    final int[] nextSibling;
+    final int[] size;
+    final Object[] data;
+
+    Store(int n) {
+      firstChild = new int[n];
+      nextSibling = new int[n];
+      size = new int[n];
+      data = new Object[n];
+    }
+  }
+
+  private final Store store;
+  private final int index;
+
+  CompactTree(Store store, int index) {
+    this.store = store;
+    this.index = index;
+  }
+
+  /** Copies any tree, typically a Tree.Node graph, into compact form. */
+  public static <Item> Tree<Item> build(Tree<Item> tree) {
+    if (tree.isEmpty()) { return new Tree.Empty<Item>(); }
+    Store store = new Store(Tree.requireKnownSize(tree, "CompactTree.build").size());
+    // explicit stack of pending subtrees and the index of their parent
+    List<Tree<Item>> pending = new ArrayList<Tree<Item>>();
+    IntList parents = new IntList();
+    int[] lastChild = new int[store.size.length];
+    List<Tree<Item>> kids = new ArrayList<Tree<Item>>();
+    pending.add(tree);
+    parents.add(NONE);
+    int next = 0;
+    while (! pending.isEmpty()) {
+      Tree<Item> current = pending.remove(pending.size() - 1);
+      int parent = parents.removeLast();
+      int k = next ++;
+      store.data[k] = current.data();
+      store.size[k] = current.size();
+      store.firstChild[k] = NONE;
+      store.nextSibling[k] = NONE;
+      lastChild[k] = NONE;
+      if (parent != NONE) {
+        if (lastChild[parent] == NONE) {
+          store.firstChild[parent] = k;
+        } else {
+          store.nextSibling[lastChild[parent]] = k;
+        }
+        lastChild[parent] = k;
+      }
+      kids.clear();
+      for (Iterator<Tree<Item>> i = current.children(); i.hasNext(); ) {
+        Tree<Item> child = i.next();
+        if (! child.isEmpty()) { kids.add(child); }
+      }
+      for (int c = kids.size() - 1; c >= 0; c --) {
+        pending.add(kids.get(c));
+        parents.add(k);
+      }
+    }
+    return new CompactTree<Item>(store, 0);
+  }
+
+  public boolean isEmpty() { return false; }
+  public int size() { return store.size[index]; }
+
+  @SuppressWarnings("unchecked")
+  public Item data() { return (Item) store.data[index]; }
+
+  public Iterator<Tree<Item>> children() {
+    return new Iterator<Tree<Item>>() {
+      private int next = store.firstChild[index];
+      public boolean hasNext() { return next != NONE; }
+      public Tree<Item> next() throws NoSuchElementException {
+        if (next == NONE) { throw new NoSuchElementException(); }
+        Tree<Item> child = new CompactTree<Item>(store, next);
+        next = store.nextSibling[next];
+        return child;
+      }
+      public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
+    return new NodeIterator<Item>(this, driver);
+  }
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+    return new NodeIterator<Item>(this, driver, listener);
+  }
+  public Iterator<Tree<Item>> iterator() {
+    return iterator(new Stack<Tree<Item>>());
+  }
+  public Spliterator<Tree<Item>> spliterator() {
+    return new TreeSpliterator<Item>(this, true);
+  }
+
+  public boolean equals(Object that) {
+    if (! (that instanceof CompactTree)) { return false; }
+    CompactTree<?> other = (CompactTree<?>) that;
+    return store == other.store && index == other.index;
+  }
+  public int hashCode() { return System.identityHashCode(store) * 31 + index; }
+
+  public String toString() { return TreeFormat.toString(this); }
+
+  /** Minimal growable int stack used during conversion. */
+  static final class IntList {
+    private int[] values = new int[16];
+    private int size;
+    void add(int v) {
+      if (size == values.length) {
+        int[] bigger = new int[size << 1];
+        System.arraycopy(values, 0, bigger, 0, size);
+        values = bigger;
+      }
+      values[size ++] = v;
+    }
+    int removeLast() { return values[-- size]; }
+  }
+}
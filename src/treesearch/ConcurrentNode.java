@@ -0,0 +1,173 @@
+package treesearch;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A mutable tree node that many threads may grow and prune at once.
+ * Readers never block: children() and the driver iterators walk a linked
+ * list of children whose links are published through volatile fields, so
+ * they are weakly consistent. They never throw, they see every child that
+ * is attached throughout the walk exactly once, and they may or may not
+ * see children attached or detached while they run.
+ *
+ * There is no global lock. A writer locks the root of the tree it
+ * changes, and addChild also locks the detached child, which is the root
+ * of its own tree; the two are taken in the order of their creation, so
+ * writers cannot deadlock. Once it holds them a writer checks that the
+ * root is still the root, and starts over if a concurrent move got in
+ * between. Holding the root keeps the parent chain of every node in the
+ * tree fixed, so the cycle check stays valid until the child is linked
+ * and each size delta reaches exactly the ancestors it belongs to; the
+ * sizes themselves are atomic counters. Writers on separate trees never
+ * wait for each other. Each child holds its own link, which makes
+ * removeChild O(1) plus the depth of the tree. size() is exact whenever no
+ * writer is active and may briefly lag for ancestors of the node being
+ * changed. A node has at most one parent, and moving a node below its own
+ * descendant is rejected.
+ */
+class ConcurrentNode<Item> implements Tree<Item> {
+
+  /** Hands out lock order numbers. */
+  private static final AtomicLong ORDER = new AtomicLong();
+
+  private final Item data;
+  private final long order = ORDER.getAndIncrement();
+  // the list of children; first is read without a lock, last and the
+  // link are guarded by the lock of the tree's root
+  private volatile Link<Item> first;
+  private Link<Item> last;
+  private Link<Item> link;
+  private volatile ConcurrentNode<Item> parent;
+  private final AtomicInteger size = new AtomicInteger(1);
+
+  public ConcurrentNode(Item data) {
+    this.data = data;
+  }
+
+  /** Attaches a node that currently has no parent. */
+  public void addChild(ConcurrentNode<Item> child) {
+    while (true) {
+      ConcurrentNode<Item> root = root(this);
+      ConcurrentNode<Item> outer = child.order < root.order ? child : root;
+      synchronized (outer) {
+        synchronized (outer == child ? root : child) {
+          if (root(this) != root) { continue; }
+          for (ConcurrentNode<Item> n = this; n != null; n = n.parent) {
+            if (n == child) { throw new IllegalArgumentException("would create a cycle"); }
+          }
+          if (child.parent != null) { throw new IllegalStateException("child already has a parent"); }
+          Link<Item> l = new Link<Item>(child);
+          l.prev = last;
+          if (last == null) { first = l; } else { last.next = l; }
+          last = l;
+          child.link = l;
+          child.parent = this;
+          propagate(this, child.size.get());
+          return;
+        }
+      }
+    }
+  }
+
+  /** Convenience for adding a new leaf; returns it. */
+  public ConcurrentNode<Item> addChild(Item item) {
+    ConcurrentNode<Item> child = new ConcurrentNode<Item>(item);
+    addChild(child);
+    return child;
+  }
+
+  /** Detaches child if it is currently a child of this node. */
+  public boolean removeChild(ConcurrentNode<Item> child) {
+    while (true) {
+      ConcurrentNode<Item> root = root(this);
+      synchronized (root) {
+        if (root(this) != root) { continue; }
+        if (child.parent != this) { return false; }
+        Link<Item> l = child.link;
+        // l.next is left alone so that iterators standing on l can go on
+        if (l.prev == null) { first = l.next; } else { l.prev.next = l.next; }
+        if (l.next == null) { last = l.prev; } else { l.next.prev = l.prev; }
+        l.removed = true;
+        l.prev = null;
+        child.link = null;
+        child.parent = null;
+        propagate(this, - child.size.get());
+        return true;
+      }
+    }
+  }
+
+  public ConcurrentNode<Item> parent() { return parent; }
+
+  /** The current root above n; only stable while its lock is held. */
+  private static <Item> ConcurrentNode<Item> root(ConcurrentNode<Item> n) {
+    for (ConcurrentNode<Item> p = n.parent; p != null; p = n.parent) { n = p; }
+    return n;
+  }
+
+  /** Called with the root locked, which keeps the parent chain fixed. */
+  private static <Item> void propagate(ConcurrentNode<Item> from, int delta) {
+    for (ConcurrentNode<Item> n = from; n != null; n = n.parent) {
+      n.size.addAndGet(delta);
+    }
+  }
+
+  public boolean isEmpty() { return false; }
+  public int size() { return size.get(); }
+  public Item data() { return data; }
+
+  public Iterator<Tree<Item>> children() {
+    return new Iterator<Tree<Item>>() {
+      private Link<Item> next = skip(first);
+      public boolean hasNext() { return next != null; }
+      public Tree<Item> next() {
+        if (next == null) { throw new NoSuchElementException(); }
+        Tree<Item> result = next.node;
+        next = skip(next.next);
+        return result;
+      }
+    };
+  }
+
+  private static <Item> Link<Item> skip(Link<Item> l) {
+    while (l != null && l.removed) { l = l.next; }
+    return l;
+  }
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
+    return new NodeIterator<Item>(this, driver);
+  }
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+    return new NodeIterator<Item>(this, driver, listener);
+  }
+  public Iterator<Tree<Item>> iterator() {
+    return iterator(new ArrayStack<Tree<Item>>());
+  }
+
+  /** Sizes can change underneath a split, so the stream does not claim exact sizes. */
+  public Spliterator<Tree<Item>> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL);
+  }
+
+  public String toString() { return TreeFormat.toString(this); }
+
+  /**
+   * One entry of a child list. A link belongs to one list for life; a
+   * child that is detached and attached again gets a new one, so a
+   * removed link still leads on through its old list.
+   */
+  private static final class Link<Item> {
+    final ConcurrentNode<Item> node;
+    volatile Link<Item> next;
+    volatile boolean removed;
+    // guarded by the lock of the tree's root
+    Link<Item> prev;
+
+    Link(ConcurrentNode<Item> node) { this.node = node; }
+  }
+}
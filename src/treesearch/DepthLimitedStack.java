@@ -0,0 +1,100 @@
+package treesearch;
+
+import java.util.AbstractCollection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A LIFO driver that knows how deep each pending node is and silently
+ * refuses nodes below the depth limit. It relies on the NodeIterator
+ * protocol: the first node added is the root at depth 0, and everything
+ * added after a remove() is a child of the node just removed. Nodes at
+ * the limit are not expanded at all, since wantsChildren() tells
+ * NodeIterator to skip them, so lazily generated children below the limit
+ * are never built. Memory is proportional to depth times branching factor.
+ */
+class DepthLimitedStack<Item> extends AbstractCollection<Item> implements Driver<Item> {
+
+  private final int limit;
+  private Object[] elements = new Object[16];
+  private int[] depths = new int[16];
+  private int size;
+  private int lastDepth = -1;
+  private boolean cutoff;
+  private int modCount;
+
+  public DepthLimitedStack(int limit) {
+    if (limit < 0) { throw new IllegalArgumentException("limit < 0"); }
+    this.limit = limit;
+  }
+
+  public int size() { return size; }
+  public boolean isEmpty() { return size == 0; }
+
+  /** Adds the item unless it lies deeper than the limit. */
+  public boolean add(Item item) {
+    if (item == null) { throw new NullPointerException(); }
+    int depth = lastDepth + 1;
+    if (depth > limit) {
+      cutoff = true;
+      return false;
+    }
+    if (size == elements.length) {
+      Object[] e = new Object[size << 1];
+      System.arraycopy(elements, 0, e, 0, size);
+      elements = e;
+      int[] d = new int[size << 1];
+      System.arraycopy(depths, 0, d, 0, size);
+      depths = d;
+    }
+    elements[size] = item;
+    depths[size ++] = depth;
+    modCount ++;
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item remove() throws NoSuchElementException {
+    if (size == 0) { throw new NoSuchElementException(); }
+    Item item = (Item) elements[-- size];
+    elements[size] = null;
+    lastDepth = depths[size];
+    modCount ++;
+    return item;
+  }
+
+  /** False for a node at the limit; its children would all be refused. */
+  public boolean wantsChildren() {
+    if (lastDepth < limit) { return true; }
+    cutoff = true;
+    return false;
+  }
+
+  /** Depth of the node most recently removed; -1 before the first. */
+  public int lastDepth() { return lastDepth; }
+
+  /**
+   * Whether the limit cut the traversal short: a node at the limit was left
+   * unexpanded or a deeper node was refused. The tree may or may not go
+   * deeper, since finding out would mean expanding the node.
+   */
+  public boolean cutoff() { return cutoff; }
+
+  public Iterator<Item> iterator() {
+    return new Iterator<Item>() {
+      private int next = size - 1;
+      private final int expected = modCount;
+      public boolean hasNext() { return next >= 0; }
+      @SuppressWarnings("unchecked")
+      public Item next() throws NoSuchElementException {
+        if (expected != modCount) { throw new ConcurrentModificationException(); }
+        if (next < 0) { throw new NoSuchElementException(); }
+        return (Item) elements[next --];
+      }
+      public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,21 @@
+package treesearch;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+/**
+ * A traversal driver that can hand out its first element directly.
+ * NodeIterator uses remove() instead of going through iterator().remove(),
+ * so array-backed drivers need not allocate anything per step.
+ */
+interface Driver<Item> extends Collection<Item> {
+  /** Removes and returns the first element in traversal order. */
+  Item remove() throws NoSuchElementException;
+
+  /**
+   * Whether NodeIterator should add the children of the element just
+   * removed. A driver that would refuse all of them answers false, so
+   * they are never generated.
+   */
+  default boolean wantsChildren() { return true; }
+}
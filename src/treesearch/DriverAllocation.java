@@ -0,0 +1,48 @@
+package treesearch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Compares the bytes allocated by the LinkedList drivers (Queue, Stack)
+ * with the circular-array drivers (ArrayQueue, ArrayStack) while running
+ * a full traversal over a balanced tree.
+ * Usage: java treesearch.DriverAllocation [depth] [fanout]
+ */
+public class DriverAllocation {
+
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+    int fanout = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    Tree<Integer> t = Trees.balanced(depth, fanout);
+    System.out.println("nodes = " + t.size());
+
+    for (int round = 0; round < 3; round ++) {
+      report("Queue", t, new Queue<Tree<Integer>>());
+      report("ArrayQueue", t, new ArrayQueue<Tree<Integer>>());
+      report("Stack", t, new Stack<Tree<Integer>>());
+      report("ArrayStack", t, new ArrayStack<Tree<Integer>>());
+      System.out.println();
+    }
+  }
+
+  static <Item> void report(String name, Tree<Item> t, Collection<Tree<Item>> driver) {
+    TraversalStats stats = new TraversalStats();
+    long before = allocatedBytes();
+    for (Iterator<Tree<Item>> i = t.iterator(driver, stats); i.hasNext(); i.next()) { }
+    long bytes = allocatedBytes() - before;
+    System.out.println(name + ": " + stats + ", "
+        + bytes + " bytes allocated (" + (bytes / stats.getVisited()) + " per node)");
+  }
+
+  /** Bytes allocated so far by this thread, or -1 if the JVM cannot tell. */
+  static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
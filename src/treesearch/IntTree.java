@@ -0,0 +1,55 @@
+package treesearch;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only tree of int payloads with no boxing: values and subtree
+ * sizes are two parallel int arrays in preorder. Preorder scans walk the
+ * arrays directly; the other scans and children() come from PrimitiveTree.
+ */
+class IntTree extends PrimitiveTree<IntTree> {
+
+  private final int[] values;
+
+  /** Builds a tree from preorder payloads and matching subtree sizes. */
+  public IntTree(int[] values, int[] size) {
+    this(values, size, 0);
+    if (values.length != size.length) {
+      throw new IllegalArgumentException("values and sizes differ in length");
+    }
+    checkSizes(size);
+  }
+
+  private IntTree(int[] values, int[] size, int index) {
+    super(size, index);
+    this.values = values;
+  }
+
+  /** Copies a boxed tree, typically a Tree.Node graph. */
+  public static IntTree build(Tree<? extends Number> tree) {
+    final int[] values = new int[requireRoot(tree, "IntTree.build").size()];
+    int[] size = flatten(tree, (item, k) -> values[k] = item.intValue());
+    return new IntTree(values, size, 0);
+  }
+
+  protected IntTree node(int i) { return new IntTree(values, size, i); }
+
+  public int data() { return values[index]; }
+
+  public void forEachPreorder(IntConsumer action) {
+    for (int i = index, end = index + size[index]; i < end; i ++) {
+      action.accept(values[i]);
+    }
+  }
+
+  public void forEachBreadthFirst(IntConsumer action) {
+    final int[] values = this.values;
+    breadthFirst(node -> action.accept(values[node]));
+  }
+
+  /** Same visiting order as a TreePrique driver. */
+  public void forEachBySize(IntConsumer action) {
+    final int[] values = this.values;
+    sizeOrder(node -> action.accept(values[node]));
+  }
+}
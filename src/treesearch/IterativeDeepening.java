@@ -0,0 +1,68 @@
+package treesearch;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterative-deepening depth-first traversal: runs depth-limited passes with
+ * limits 0, 1, 2, ... and yields only the nodes found at the current limit,
+ * so every node is returned once, level by level, while memory stays
+ * proportional to depth. Stops when a pass reaches no deeper nodes or the
+ * maximum depth has been searched. Shallow levels are expanded again on
+ * every pass, which suits lazily generated trees.
+ */
+class IterativeDeepening<Item> implements Iterator<Tree<Item>> {
+
+  private final Tree<Item> root;
+  private final int maxDepth;
+  private int limit = -1;
+  private DepthLimitedStack<Tree<Item>> driver;
+  private Iterator<Tree<Item>> pass;
+  private Tree<Item> next;
+  private int nextDepth;
+  private int depth = -1;
+
+  public IterativeDeepening(Tree<Item> root, int maxDepth) {
+    this.root = root;
+    this.maxDepth = maxDepth;
+    if (! root.isEmpty()) { advance(); }
+  }
+
+  /** Depth of the node most recently returned by next(). */
+  public int depth() { return depth; }
+
+  public boolean hasNext() { return next != null; }
+
+  public Tree<Item> next() throws NoSuchElementException {
+    if (next == null) { throw new NoSuchElementException(); }
+    Tree<Item> result = next;
+    depth = nextDepth;
+    advance();
+    return result;
+  }
+
+  public void remove() throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  private void advance() {
+    next = null;
+    for (;;) {
+      if (pass == null) {
+        if (limit >= maxDepth || (driver != null && ! driver.cutoff())) { return; }
+        limit ++;
+        driver = new DepthLimitedStack<Tree<Item>>(limit);
+        pass = root.iterator(driver);
+      }
+      while (pass.hasNext()) {
+        Tree<Item> candidate = pass.next();
+        if (driver.lastDepth() == limit) {
+          next = candidate;
+          nextDepth = limit;
+          return;
+        }
+      }
+      pass = null;
+    }
+  }
+}
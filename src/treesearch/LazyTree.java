@@ -0,0 +1,114 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * An implicit tree whose children are produced by an Expander the first
+ * time children() is called on a node. Nothing below a node exists until
+ * it is asked for, so trees with billions of nodes can be searched as long
+ * as only part of them is visited. Expanded child lists can optionally be
+ * kept in a bounded least-recently-used memo shared by the whole tree;
+ * without it every call to children() expands the node again.
+ * The size of an implicit tree is unknown, so size() is not supported and
+ * hasKnownSize() is false; size-based code such as TreePrique, Tree.Node
+ * and CompactTree.build rejects a LazyTree as soon as it is handed one.
+ * Not thread-safe.
+ */
+class LazyTree<Item> implements Tree<Item> {
+
+  /** Produces the payloads of a node's children. */
+  public interface Expander<Item> {
+    Iterable<Item> expand(Item item);
+  }
+
+  /** Expansion settings shared by all nodes of one lazy tree. */
+  static final class Context<Item> {
+    final Expander<Item> expander;
+    final Map<LazyTree<Item>, List<Tree<Item>>> memo;
+
+    Context(Expander<Item> expander, final int memoCapacity) {
+      this.expander = expander;
+      this.memo = memoCapacity <= 0 ? null
+        : new LinkedHashMap<LazyTree<Item>, List<Tree<Item>>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2349162271558471047L;
+            protected boolean removeEldestEntry(Map.Entry<LazyTree<Item>, List<Tree<Item>>> eldest) {
+              return size() > memoCapacity;
+            }
+          };
+    }
+  }
+
+  private final Item data;
+  private final Context<Item> context;
+
+  /** A lazy tree without memoization. */
+  public LazyTree(Item root, Expander<Item> expander) {
+    this(root, expander, 0);
+  }
+
+  /** A lazy tree remembering the child lists of up to memoCapacity nodes. */
+  public LazyTree(Item root, Expander<Item> expander, int memoCapacity) {
+    this(root, new Context<Item>(expander, memoCapacity));
+  }
+
+  private LazyTree(Item data, Context<Item> context) {
+    this.data = data;
+    this.context = context;
+  }
+
+  public boolean isEmpty() { return false; }
+  public boolean hasKnownSize() { return false; }
+  public int size() throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("size of an implicit tree is unknown");
+  }
+  public Item data() { return data; }
+
+  public Iterator<Tree<Item>> children() {
+    if (context.memo != null) {
+      List<Tree<Item>> known = context.memo.get(this);
+      if (known == null) {
+        known = new ArrayList<Tree<Item>>();
+        for (Item item : context.expander.expand(data)) {
+          known.add(new LazyTree<Item>(item, context));
+        }
+        context.memo.put(this, known);
+      }
+      return known.iterator();
+    }
+    final Iterator<Item> items = context.expander.expand(data).iterator();
+    return new Iterator<Tree<Item>>() {
+      public boolean hasNext() { return items.hasNext(); }
+      public Tree<Item> next() throws NoSuchElementException {
+        return new LazyTree<Item>(items.next(), context);
+      }
+      public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
+    return new NodeIterator<Item>(this, driver);
+  }
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+    return new NodeIterator<Item>(this, driver, listener);
+  }
+  public Iterator<Tree<Item>> iterator() {
+    return iterator(new ArrayStack<Tree<Item>>());
+  }
+
+  /** Sizes are unknown, so the stream cannot split evenly; it splits in batches instead. */
+  public Spliterator<Tree<Item>> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL);
+  }
+
+  public String toString() { return "(" + data + ", ...)"; }
+}
@@ -0,0 +1,120 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Level-synchronous breadth-first traversal: each call to next() returns a
+ * whole level of the tree as one batch together with its depth, in the
+ * same left-to-right order a Queue driver would produce. The next level is
+ * built only when hasNext() or next() asks for it, so a caller that stops
+ * after the level it wants never pays for the one below. Given an
+ * ExecutorService, wide levels are expanded in parallel chunks; each
+ * worker collects the children of its chunk and the chunks are joined in
+ * order, so the result does not depend on scheduling.
+ */
+class LevelIterator<Item> implements Iterator<LevelIterator.Level<Item>> {
+
+  /** One level of a tree: its depth and its nodes. */
+  public static final class Level<Item> {
+    private final int depth;
+    private final List<Tree<Item>> nodes;
+    Level(int depth, List<Tree<Item>> nodes) {
+      this.depth = depth;
+      this.nodes = Collections.unmodifiableList(nodes);
+    }
+    public int depth() { return depth; }
+    public List<Tree<Item>> nodes() { return nodes; }
+    public String toString() { return depth + ": " + nodes.size() + " nodes"; }
+  }
+
+  /** Levels narrower than this are expanded on the calling thread. */
+  static final int PARALLEL_THRESHOLD = 4096;
+
+  private final ExecutorService workers;
+  // the level next() returns, or null until it is built from previous
+  private List<Tree<Item>> current;
+  private List<Tree<Item>> previous;
+  private int depth;
+
+  public LevelIterator(Tree<Item> root) {
+    this(root, null);
+  }
+
+  /** Expands wide levels on workers; null means sequential. */
+  public LevelIterator(Tree<Item> root, ExecutorService workers) {
+    this.workers = workers;
+    this.current = new ArrayList<Tree<Item>>();
+    if (! root.isEmpty()) { current.add(root); }
+  }
+
+  public boolean hasNext() {
+    if (current == null) {
+      current = expand(previous);
+      previous = null;
+    }
+    return ! current.isEmpty();
+  }
+
+  public Level<Item> next() throws NoSuchElementException {
+    if (! hasNext()) { throw new NoSuchElementException(); }
+    Level<Item> result = new Level<Item>(depth ++, current);
+    previous = current;
+    current = null;
+    return result;
+  }
+
+  public void remove() throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  private List<Tree<Item>> expand(final List<Tree<Item>> level) {
+    if (workers == null || level.size() < PARALLEL_THRESHOLD) {
+      return expand(level, 0, level.size());
+    }
+    int chunks = Math.min(level.size() / (PARALLEL_THRESHOLD / 4), 4 * Runtime.getRuntime().availableProcessors());
+    List<Callable<List<Tree<Item>>>> tasks = new ArrayList<Callable<List<Tree<Item>>>>(chunks);
+    for (int c = 0; c < chunks; c ++) {
+      final int from = (int) ((long) level.size() * c / chunks);
+      final int to = (int) ((long) level.size() * (c + 1) / chunks);
+      tasks.add(new Callable<List<Tree<Item>>>() {
+        public List<Tree<Item>> call() { return expand(level, from, to); }
+      });
+    }
+    try {
+      List<List<Tree<Item>>> parts = new ArrayList<List<Tree<Item>>>(chunks);
+      int total = 0;
+      for (Future<List<Tree<Item>>> f : workers.invokeAll(tasks)) {
+        List<Tree<Item>> part = f.get();
+        parts.add(part);
+        total += part.size();
+      }
+      List<Tree<Item>> next = new ArrayList<Tree<Item>>(total);
+      for (List<Tree<Item>> part : parts) { next.addAll(part); }
+      return next;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while expanding level " + depth, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("expanding level " + depth + " failed", e.getCause());
+    }
+  }
+
+  private static <Item> List<Tree<Item>> expand(List<Tree<Item>> level, int from, int to) {
+    List<Tree<Item>> next = new ArrayList<Tree<Item>>();
+    for (int k = from; k < to; k ++) {
+      for (Iterator<Tree<Item>> i = level.get(k).children(); i.hasNext(); ) {
+        Tree<Item> child = i.next();
+        if (! child.isEmpty()) { next.add(child); }
+      }
+    }
+    return next;
+  }
+}
@@ -0,0 +1,55 @@
+package treesearch;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A read-only tree of long payloads with no boxing: values and subtree
+ * sizes are a long array and an int array in preorder. Preorder scans walk the
+ * arrays directly; the other scans and children() come from PrimitiveTree.
+ */
+class LongTree extends PrimitiveTree<LongTree> {
+
+  private final long[] values;
+
+  /** Builds a tree from preorder payloads and matching subtree sizes. */
+  public LongTree(long[] values, int[] size) {
+    this(values, size, 0);
+    if (values.length != size.length) {
+      throw new IllegalArgumentException("values and sizes differ in length");
+    }
+    checkSizes(size);
+  }
+
+  private LongTree(long[] values, int[] size, int index) {
+    super(size, index);
+    this.values = values;
+  }
+
+  /** Copies a boxed tree, typically a Tree.Node graph. */
+  public static LongTree build(Tree<? extends Number> tree) {
+    final long[] values = new long[requireRoot(tree, "LongTree.build").size()];
+    int[] size = flatten(tree, (item, k) -> values[k] = item.longValue());
+    return new LongTree(values, size, 0);
+  }
+
+  protected LongTree node(int i) { return new LongTree(values, size, i); }
+
+  public long data() { return values[index]; }
+
+  public void forEachPreorder(LongConsumer action) {
+    for (int i = index, end = index + size[index]; i < end; i ++) {
+      action.accept(values[i]);
+    }
+  }
+
+  public void forEachBreadthFirst(LongConsumer action) {
+    final long[] values = this.values;
+    breadthFirst(node -> action.accept(values[node]));
+  }
+
+  /** Same visiting order as a TreePrique driver. */
+  public void forEachBySize(LongConsumer action) {
+    final long[] values = this.values;
+    sizeOrder(node -> action.accept(values[node]));
+  }
+}
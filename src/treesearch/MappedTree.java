@@ -0,0 +1,288 @@
+package treesearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+
+/**
+ * A read-only tree stored in a binary file and accessed through memory
+ * mapping, so opening it costs nothing and only the pages of visited nodes
+ * are ever read. A MappedTree object is a view of one node of the file.
+ *
+ * File layout, big-endian, nodes numbered in preorder:
+ *   int magic, int version, long node count n
+ *   int[n]     subtree sizes (padded to a multiple of 8 bytes)
+ *   long[n+1]  payload offsets relative to the payload section
+ *   byte[]     payloads, encoded by a Codec
+ * The first child of node i is i + 1 and each following sibling starts
+ * where the previous one's subtree ends. Files larger than 2GB are mapped
+ * in 1GB segments. The mapping is released when the views are collected.
+ * open() checks the header against the file length, so a truncated file
+ * fails there with an IOException instead of later in a read.
+ */
+class MappedTree<Item> implements Tree<Item> {
+
+  /** Turns payloads into bytes and back. */
+  public interface Codec<Item> {
+    byte[] encode(Item item);
+    /** Decodes the bytes between the buffer's position and limit. */
+    Item decode(ByteBuffer bytes);
+  }
+
+  public static final Codec<String> STRING = new Codec<String>() {
+    public byte[] encode(String item) { return item.getBytes(StandardCharsets.UTF_8); }
+    public String decode(ByteBuffer bytes) { return StandardCharsets.UTF_8.decode(bytes).toString(); }
+  };
+
+  public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+    public byte[] encode(Integer item) { return ByteBuffer.allocate(4).putInt(item).array(); }
+    public Integer decode(ByteBuffer bytes) { return bytes.getInt(bytes.position()); }
+  };
+
+  static final int MAGIC = 0x54524545; // "TREE"
+  static final int VERSION = 1;
+  static final int HEADER = 16;
+  static final int SEGMENT_SHIFT = 30;
+  static final long SEGMENT = 1L << SEGMENT_SHIFT;
+
+  /** The mapped file shared by all views. */
+  static final class Store<Item> {
+    final MappedByteBuffer[] segments;
+    final long nodes;
+    final long offsets;
+    final long payloads;
+    final Codec<Item> codec;
+
+    Store(MappedByteBuffer[] segments, long nodes, Codec<Item> codec) {
+      this.segments = segments;
+      this.nodes = nodes;
+      this.offsets = HEADER + pad(4 * nodes);
+      this.payloads = offsets + 8 * (nodes + 1);
+      this.codec = codec;
+    }
+
+    // sections are 8-byte aligned and segments are a power of two, so
+    // no int or long straddles a segment boundary
+    int size(long k) {
+      long at = HEADER + 4 * k;
+      return segments[(int) (at >>> SEGMENT_SHIFT)].getInt((int) (at & (SEGMENT - 1)));
+    }
+
+    long offset(long k) {
+      long at = offsets + 8 * k;
+      return segments[(int) (at >>> SEGMENT_SHIFT)].getLong((int) (at & (SEGMENT - 1)));
+    }
+
+    Item data(long k) {
+      long from = payloads + offset(k);
+      long to = payloads + offset(k + 1);
+      int segment = (int) (from >>> SEGMENT_SHIFT);
+      ByteBuffer bytes;
+      if (to == from) {
+        bytes = ByteBuffer.allocate(0);
+      } else if (segment == (int) ((to - 1) >>> SEGMENT_SHIFT)) {
+        bytes = segments[segment].duplicate();
+        bytes.limit((int) (to - ((long) segment << SEGMENT_SHIFT)));
+        bytes.position((int) (from & (SEGMENT - 1)));
+      } else {
+        // payload straddles two segments; copy it out
+        byte[] copy = new byte[(int) (to - from)];
+        for (int i = 0; i < copy.length; i ++) {
+          long at = from + i;
+          copy[i] = segments[(int) (at >>> SEGMENT_SHIFT)].get((int) (at & (SEGMENT - 1)));
+        }
+        bytes = ByteBuffer.wrap(copy);
+      }
+      return codec.decode(bytes);
+    }
+  }
+
+  private final Store<Item> store;
+  private final int index;
+
+  MappedTree(Store<Item> store, int index) {
+    this.store = store;
+    this.index = index;
+  }
+
+  /** Maps a file written by write(). */
+  public static <Item> Tree<Item> open(File file, Codec<Item> codec) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      long length = channel.size();
+      if (length < HEADER) { throw new IOException(file + " is not a tree file"); }
+      int count = (int) ((length + SEGMENT - 1) >>> SEGMENT_SHIFT);
+      MappedByteBuffer[] segments = new MappedByteBuffer[count];
+      for (int s = 0; s < count; s ++) {
+        long start = (long) s << SEGMENT_SHIFT;
+        segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT, length - start));
+      }
+      if (segments[0].getInt(0) != MAGIC) {
+        throw new IOException(file + " is not a tree file");
+      }
+      if (segments[0].getInt(4) != VERSION) {
+        throw new IOException(file + " has unsupported version " + segments[0].getInt(4));
+      }
+      long nodes = segments[0].getLong(8);
+      if (nodes < 0 || nodes > Integer.MAX_VALUE) {
+        throw new IOException(file + " has a bad node count for a Tree: " + nodes);
+      }
+      Store<Item> store = new Store<Item>(segments, nodes, codec);
+      // the checks that cost nothing: the sections fit, the root spans
+      // every node and the payloads end inside the file
+      if (length < store.payloads) {
+        throw new IOException(file + " is truncated: " + nodes + " nodes need "
+            + store.payloads + " bytes before the payloads, file has " + length);
+      }
+      long end = store.offset(nodes);
+      if (end < 0 || end > length - store.payloads) {
+        throw new IOException(file + " is truncated: payloads end at " + (store.payloads + end)
+            + ", file has " + length + " bytes");
+      }
+      if (nodes == 0) { return new Tree.Empty<Item>(); }
+      if (store.size(0) != nodes) {
+        throw new IOException(file + " is corrupt: root size " + store.size(0) + " but " + nodes + " nodes");
+      }
+      return new MappedTree<Item>(store, 0);
+    } finally {
+      raf.close(); // mappings stay valid after the channel is closed
+    }
+  }
+
+  /** Writes any tree in the format above, in one preorder pass. */
+  public static <Item> void write(Tree<Item> tree, Codec<? super Item> codec, File file)
+      throws IOException {
+    long nodes = Tree.requireKnownSize(tree, "MappedTree.write").size();
+    long offsets = HEADER + pad(4 * nodes);
+    long payloads = offsets + 8 * (nodes + 1);
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+      FileChannel channel = raf.getChannel();
+      Section header = new Section(channel, 0);
+      header.buffer.putInt(MAGIC).putInt(VERSION).putLong(nodes);
+      header.flush();
+      Section sizes = new Section(channel, HEADER);
+      Section index = new Section(channel, offsets);
+      Section data = new Section(channel, payloads);
+      long written = 0;
+      if (! tree.isEmpty()) {
+        List<Tree<Item>> pending = new ArrayList<Tree<Item>>();
+        List<Tree<Item>> kids = new ArrayList<Tree<Item>>();
+        pending.add(tree);
+        while (! pending.isEmpty()) {
+          Tree<Item> current = pending.remove(pending.size() - 1);
+          byte[] bytes = codec.encode(current.data());
+          sizes.putInt(current.size());
+          index.putLong(written);
+          data.put(bytes);
+          written += bytes.length;
+          kids.clear();
+          for (Iterator<Tree<Item>> i = current.children(); i.hasNext(); ) {
+            Tree<Item> child = i.next();
+            if (! child.isEmpty()) { kids.add(child); }
+          }
+          for (int c = kids.size() - 1; c >= 0; c --) { pending.add(kids.get(c)); }
+        }
+      }
+      index.putLong(written);
+      sizes.flush();
+      index.flush();
+      data.flush();
+    } finally {
+      raf.close();
+    }
+  }
+
+  static long pad(long bytes) { return (bytes + 7) & ~7L; }
+
+  /** Buffered sequential writes to one section of the file. */
+  private static final class Section {
+    final FileChannel channel;
+    final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    long position;
+
+    Section(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+    void putInt(int v) throws IOException {
+      if (buffer.remaining() < 4) { flush(); }
+      buffer.putInt(v);
+    }
+    void putLong(long v) throws IOException {
+      if (buffer.remaining() < 8) { flush(); }
+      buffer.putLong(v);
+    }
+    void put(byte[] bytes) throws IOException {
+      if (buffer.remaining() < bytes.length) {
+        flush();
+        if (bytes.length > buffer.capacity()) {
+          ByteBuffer large = ByteBuffer.wrap(bytes);
+          while (large.hasRemaining()) { position += channel.write(large, position); }
+          return;
+        }
+      }
+      buffer.put(bytes);
+    }
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) { position += channel.write(buffer, position); }
+      buffer.clear();
+    }
+  }
+
+  public boolean isEmpty() { return false; }
+  public int size() { return store.size(index); }
+  public Item data() { return store.data(index); }
+
+  public Iterator<Tree<Item>> children() {
+    return new Iterator<Tree<Item>>() {
+      private final int end = index + store.size(index);
+      private int next = index + 1;
+      public boolean hasNext() { return next < end; }
+      public Tree<Item> next() throws NoSuchElementException {
+        if (next >= end) { throw new NoSuchElementException(); }
+        Tree<Item> child = new MappedTree<Item>(store, next);
+        next += store.size(next);
+        return child;
+      }
+      public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
+    return new NodeIterator<Item>(this, driver);
+  }
+  public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+    return new NodeIterator<Item>(this, driver, listener);
+  }
+  public Iterator<Tree<Item>> iterator() {
+    return iterator(new Stack<Tree<Item>>());
+  }
+  public Spliterator<Tree<Item>> spliterator() {
+    return new TreeSpliterator<Item>(this, true);
+  }
+
+  public boolean equals(Object that) {
+    if (! (that instanceof MappedTree)) { return false; }
+    MappedTree<?> other = (MappedTree<?>) that;
+    return store == other.store && index == other.index;
+  }
+  public int hashCode() { return System.identityHashCode(store) * 31 + index; }
+
+  public String toString() { return TreeFormat.toString(this); }
+}
@@ -0,0 +1,81 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compares whole-tree scans over Tree.Node<Integer> with the same scans
+ * over IntTree, reporting time and bytes allocated for each, and checks
+ * that both visit the nodes in the same order.
+ * Usage: java treesearch.PrimitiveSpeedup [nodes]
+ */
+public class PrimitiveSpeedup {
+
+  private static long checksum;
+
+  public static void main(String[] args) {
+    int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Tree<Integer> t = Trees.random(nodes, 42);
+    IntTree p = IntTree.build(t);
+    System.out.println("nodes = " + t.size());
+
+    for (int round = 0; round < 3; round ++) {
+      // a stack driver visits children in reverse, so preorder is checked against an exact walk
+      boxed(t, new ArrayStack<Tree<Integer>>(), "Node preorder (ArrayStack)");
+      verify(preorder(t), measure("IntTree preorder", () -> p.forEachPreorder(PrimitiveSpeedup::mix)));
+      long boxed = boxed(t, new ArrayQueue<Tree<Integer>>(), "Node breadth-first (ArrayQueue)");
+      verify(boxed, measure("IntTree breadth-first", () -> p.forEachBreadthFirst(PrimitiveSpeedup::mix)));
+      boxed = boxed(t, new TreePrique<Integer>(), "Node by size (TreePrique)");
+      verify(boxed, measure("IntTree by size", () -> p.forEachBySize(PrimitiveSpeedup::mix)));
+      System.out.println();
+    }
+  }
+
+  static void mix(int value) {
+    checksum = checksum * 31 + value;
+  }
+
+  static long boxed(Tree<Integer> t, Collection<Tree<Integer>> driver, String name) {
+    return measure(name, () -> {
+      for (Iterator<Tree<Integer>> i = t.iterator(driver); i.hasNext(); ) { mix(i.next().data()); }
+    });
+  }
+
+  static long measure(String name, Runnable scan) {
+    checksum = 0;
+    long before = DriverAllocation.allocatedBytes();
+    long start = System.nanoTime();
+    scan.run();
+    long millis = (System.nanoTime() - start) / 1000000;
+    long bytes = DriverAllocation.allocatedBytes() - before;
+    System.out.println(name + ": " + millis + " ms, " + bytes + " bytes allocated");
+    return checksum;
+  }
+
+  /** Checksum of t in exact preorder, children first to last, from a stack of child iterators. */
+  static long preorder(Tree<Integer> t) {
+    checksum = 0;
+    List<Iterator<Tree<Integer>>> stack = new ArrayList<Iterator<Tree<Integer>>>();
+    mix(t.data());
+    stack.add(t.children());
+    while (! stack.isEmpty()) {
+      Iterator<Tree<Integer>> top = stack.get(stack.size() - 1);
+      if (top.hasNext()) {
+        Tree<Integer> child = top.next();
+        mix(child.data());
+        stack.add(child.children());
+      } else {
+        stack.remove(stack.size() - 1);
+      }
+    }
+    return checksum;
+  }
+
+  static void verify(long expected, long actual) {
+    if (expected != actual) {
+      throw new IllegalStateException("visiting orders differ");
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Shared topology and traversals for IntTree and LongTree. Nodes are
+ * numbered in preorder and only subtree sizes are stored: the first child
+ * of node i is i + 1 and each following sibling starts where the previous
+ * one's subtree ends. A PrimitiveTree object is a view of one node and
+ * holds nothing but the shared arrays and its index. The traversals hand
+ * node indices to a callback; subclasses map them to their payloads.
+ * Breadth-first and size-ordered scans keep only the current frontier, in
+ * int and long buffers that live for one scan, so their memory is
+ * proportional to the widest frontier rather than to the tree.
+ */
+abstract class PrimitiveTree<T extends PrimitiveTree<T>> {
+
+  protected final int[] size;
+  protected final int index;
+
+  protected PrimitiveTree(int[] size, int index) {
+    this.size = size;
+    this.index = index;
+  }
+
+  /**
+   * Checks in one pass that size describes a single tree in preorder: the
+   * root spans the whole array, every node counts at least itself and
+   * every subtree ends within its parent's. Anything else would make the
+   * cursor of children() and the scans stop advancing or leave the tree.
+   */
+  static void checkSizes(int[] size) {
+    if (size.length == 0 || size[0] != size.length) {
+      throw new IllegalArgumentException("sizes do not describe a single tree");
+    }
+    // ends of the subtrees enclosing node i, innermost last
+    int[] ends = new int[16];
+    int depth = 0;
+    for (int i = 0; i < size.length; i ++) {
+      while (depth > 0 && ends[depth - 1] <= i) { depth --; }
+      int limit = depth == 0 ? size.length : ends[depth - 1];
+      if (size[i] < 1 || size[i] > limit - i) {
+        throw new IllegalArgumentException("size[" + i + "] = " + size[i]
+            + " does not fit in the " + (limit - i) + " nodes left in its parent");
+      }
+      if (depth == ends.length) { ends = Arrays.copyOf(ends, depth << 1); }
+      ends[depth ++] = i + size[i];
+    }
+  }
+
+  /** Returns tree, or fails with a message naming user if it has no root to copy. */
+  static <T extends Tree<?>> T requireRoot(T tree, String user) {
+    if (Tree.requireKnownSize(tree, user).isEmpty()) {
+      throw new IllegalArgumentException(user + " needs a root, but the tree is empty");
+    }
+    return tree;
+  }
+
+  /** The view of node i of the same tree. */
+  protected abstract T node(int i);
+
+  public boolean isEmpty() { return false; }
+  public int size() { return size[index]; }
+
+  /** Views of the direct children of this node, found with an int cursor. */
+  public Iterator<T> children() {
+    return new Iterator<T>() {
+      private int next = index + 1;
+      private final int end = index + size[index];
+      public boolean hasNext() { return next < end; }
+      public T next() throws NoSuchElementException {
+        if (next >= end) { throw new NoSuchElementException(); }
+        int c = next;
+        next += size[c];
+        return node(c);
+      }
+      public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /** Visits the node indices of this subtree in breadth-first order. */
+  protected void breadthFirst(IntConsumer visit) {
+    // ring buffer holding the frontier
+    int[] queue = new int[16];
+    int head = 0, count = 0;
+    queue[count ++] = index;
+    while (count > 0) {
+      int node = queue[head];
+      head = (head + 1) & (queue.length - 1);
+      count --;
+      visit.accept(node);
+      for (int c = node + 1, end = node + size[node]; c < end; c += size[c]) {
+        if (count == queue.length) {
+          queue = unwrap(queue, head);
+          head = 0;
+        }
+        queue[(head + count ++) & (queue.length - 1)] = c;
+      }
+    }
+  }
+
+  /** Copies a full ring buffer starting at head into one twice as large. */
+  private static int[] unwrap(int[] queue, int head) {
+    int[] grown = new int[queue.length << 1];
+    System.arraycopy(queue, head, grown, 0, queue.length - head);
+    System.arraycopy(queue, 0, grown, queue.length - head, head);
+    return grown;
+  }
+
+  /**
+   * Visits the node indices in the order a TreePrique driver visits them:
+   * smallest discovered subtree first, ties in discovery order.
+   */
+  protected void sizeOrder(IntConsumer visit) {
+    // binary heap of (subtree size << 32 | discovery number) keys, with
+    // the node index of each key alongside
+    long[] keys = new long[16];
+    int[] nodes = new int[16];
+    int heapSize = 0, seen = 0;
+    keys[heapSize] = ((long) size[index] << 32) | seen ++;
+    nodes[heapSize ++] = index;
+    while (heapSize > 0) {
+      int node = nodes[0];
+      long lastKey = keys[-- heapSize];
+      int lastNode = nodes[heapSize];
+      int k = 0;
+      for (;;) {
+        int child = 2 * k + 1;
+        if (child >= heapSize) { break; }
+        if (child + 1 < heapSize && keys[child + 1] < keys[child]) { child ++; }
+        if (keys[child] >= lastKey) { break; }
+        keys[k] = keys[child];
+        nodes[k] = nodes[child];
+        k = child;
+      }
+      if (heapSize > 0) {
+        keys[k] = lastKey;
+        nodes[k] = lastNode;
+      }
+      visit.accept(node);
+      for (int c = node + 1, end = node + size[node]; c < end; c += size[c]) {
+        if (heapSize == keys.length) {
+          keys = Arrays.copyOf(keys, heapSize << 1);
+          nodes = Arrays.copyOf(nodes, heapSize << 1);
+        }
+        long key = ((long) size[c] << 32) | seen ++;
+        int j = heapSize ++;
+        while (j > 0 && keys[(j - 1) / 2] > key) {
+          keys[j] = keys[(j - 1) / 2];
+          nodes[j] = nodes[(j - 1) / 2];
+          j = (j - 1) / 2;
+        }
+        keys[j] = key;
+        nodes[j] = c;
+      }
+    }
+  }
+
+  /**
+   * Numbers the nodes of a tree in preorder, filling in subtree sizes and
+   * handing each payload with its index to the sink. Empty subtrees are dropped.
+   */
+  static <Item> int[] flatten(Tree<Item> tree, ObjIntConsumer<Item> sink) {
+    int[] size = new int[tree.size()];
+    List<Tree<Item>> pending = new ArrayList<Tree<Item>>();
+    List<Tree<Item>> kids = new ArrayList<Tree<Item>>();
+    pending.add(tree);
+    int next = 0;
+    while (! pending.isEmpty()) {
+      Tree<Item> current = pending.remove(pending.size() - 1);
+      size[next] = current.size();
+      sink.accept(current.data(), next ++);
+      kids.clear();
+      for (Iterator<Tree<Item>> i = current.children(); i.hasNext(); ) {
+        Tree<Item> child = i.next();
+        if (! child.isEmpty()) { kids.add(child); }
+      }
+      for (int c = kids.size() - 1; c >= 0; c --) { pending.add(kids.get(c)); }
+    }
+    return size;
+  }
+}
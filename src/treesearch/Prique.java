@@ -0,0 +1,209 @@
+package treesearch;
+
+import java.util.AbstractCollection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary min-heap driver kept in flat arrays. Elements that compare equal
+ * come out in insertion order: every element carries a sequence number that
+ * serves as the final tiebreak, so nothing is ever dropped as a duplicate.
+ * Ordering comes either from a Comparator or from a Cost function; costs are
+ * computed once on insertion and stored next to the element.
+ * Iteration visits the elements in heap (array) order, not priority order.
+ */
+class Prique<Item> extends AbstractCollection<Item> implements Driver<Item> {
+
+  /** Priority of an element; lower costs are removed first. */
+  public interface Cost<Item> {
+    double cost(Item item);
+  }
+
+  private static final int DEFAULT_ARITY = 4;
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final int arity;
+  private final Comparator<? super Item> order;
+  private final Cost<? super Item> cost;
+
+  private Object[] elements;
+  private long[] sequence;
+  private double[] keys;
+  private int size;
+  private long counter;
+  private int modCount;
+
+  public Prique(Comparator<? super Item> order) {
+    this(DEFAULT_ARITY, order, null);
+  }
+
+  public Prique(Cost<? super Item> cost) {
+    this(DEFAULT_ARITY, null, cost);
+  }
+
+  public Prique(int arity, Comparator<? super Item> order) {
+    this(arity, order, null);
+  }
+
+  public Prique(int arity, Cost<? super Item> cost) {
+    this(arity, null, cost);
+  }
+
+  private Prique(int arity, Comparator<? super Item> order, Cost<? super Item> cost) {
+    if (arity < 2) { throw new IllegalArgumentException("arity < 2"); }
+    if (order == null && cost == null) { throw new NullPointerException(); }
+    this.arity = arity;
+    this.order = order;
+    this.cost = cost;
+    this.elements = new Object[DEFAULT_CAPACITY];
+    this.sequence = new long[DEFAULT_CAPACITY];
+    this.keys = cost != null ? new double[DEFAULT_CAPACITY] : null;
+  }
+
+  public int size() { return size; }
+  public boolean isEmpty() { return size == 0; }
+
+  public boolean add(Item item) {
+    if (item == null) { throw new NullPointerException(); }
+    if (size == elements.length) { grow(); }
+    int k = size ++;
+    elements[k] = item;
+    sequence[k] = counter ++;
+    if (keys != null) { keys[k] = cost.cost(item); }
+    siftUp(k);
+    modCount ++;
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item peek() {
+    return size == 0 ? null : (Item) elements[0];
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item remove() throws NoSuchElementException {
+    if (size == 0) { throw new NoSuchElementException(); }
+    Item result = (Item) elements[0];
+    int last = -- size;
+    move(last, 0);
+    elements[last] = null;
+    if (last > 0) { siftDown(0); }
+    modCount ++;
+    return result;
+  }
+
+  /**
+   * Removes and returns the element that would come out last. It is a
+   * leaf of the heap, so this scans the leaves, those after the parent of
+   * the last element; bounded frontiers such as a search beam call it
+   * after each add() over their width.
+   */
+  @SuppressWarnings("unchecked")
+  Item removeWorst() throws NoSuchElementException {
+    if (size == 0) { throw new NoSuchElementException(); }
+    int worst = size == 1 ? 0 : (size - 2) / arity + 1;
+    for (int k = worst + 1; k < size; k ++) {
+      if (less(worst, k)) { worst = k; }
+    }
+    Item result = (Item) elements[worst];
+    int last = -- size;
+    move(last, worst);
+    elements[last] = null;
+    if (worst < last) { siftUp(worst); }
+    modCount ++;
+    return result;
+  }
+
+  public void clear() {
+    for (int k = 0; k < size; k ++) { elements[k] = null; }
+    size = 0;
+    modCount ++;
+  }
+
+  /** Estimated bytes held by the backing arrays. */
+  long footprint() {
+    int slot = TraversalStats.REFERENCE_BYTES + 8 + (keys != null ? 8 : 0);
+    return (long) elements.length * slot;
+  }
+
+  public Iterator<Item> iterator() {
+    return new Iterator<Item>() {
+      private int next = 0;
+      private final int expected = modCount;
+      public boolean hasNext() { return next < size; }
+      @SuppressWarnings("unchecked")
+      public Item next() throws NoSuchElementException {
+        if (expected != modCount) { throw new ConcurrentModificationException(); }
+        if (next >= size) { throw new NoSuchElementException(); }
+        return (Item) elements[next ++];
+      }
+      public void remove() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean less(int i, int j) {
+    int c;
+    if (keys != null) {
+      c = Double.compare(keys[i], keys[j]);
+    } else {
+      c = order.compare((Item) elements[i], (Item) elements[j]);
+    }
+    return c < 0 || (c == 0 && sequence[i] < sequence[j]);
+  }
+
+  private void siftUp(int k) {
+    while (k > 0) {
+      int parent = (k - 1) / arity;
+      if (! less(k, parent)) { break; }
+      swap(k, parent);
+      k = parent;
+    }
+  }
+
+  private void siftDown(int k) {
+    for (;;) {
+      int first = k * arity + 1;
+      if (first >= size) { break; }
+      int best = first;
+      int end = Math.min(first + arity, size);
+      for (int c = first + 1; c < end; c ++) {
+        if (less(c, best)) { best = c; }
+      }
+      if (! less(best, k)) { break; }
+      swap(k, best);
+      k = best;
+    }
+  }
+
+  private void swap(int i, int j) {
+    Object e = elements[i]; elements[i] = elements[j]; elements[j] = e;
+    long s = sequence[i]; sequence[i] = sequence[j]; sequence[j] = s;
+    if (keys != null) { double d = keys[i]; keys[i] = keys[j]; keys[j] = d; }
+  }
+
+  private void move(int from, int to) {
+    elements[to] = elements[from];
+    sequence[to] = sequence[from];
+    if (keys != null) { keys[to] = keys[from]; }
+  }
+
+  private void grow() {
+    int n = elements.length << 1;
+    Object[] e = new Object[n];
+    System.arraycopy(elements, 0, e, 0, size);
+    elements = e;
+    long[] s = new long[n];
+    System.arraycopy(sequence, 0, s, 0, size);
+    sequence = s;
+    if (keys != null) {
+      double[] d = new double[n];
+      System.arraycopy(keys, 0, d, 0, size);
+      keys = d;
+    }
+  }
+}
@@ -2,6 +2,6 @@ package treesearch;
 
 import java.util.LinkedList;
 
-class Queue<Item> extends LinkedList<Item> {
+class Queue<Item> extends LinkedList<Item> implements Driver<Item> {
   private static final long serialVersionUID = 7809794825862690363L; 
 }
@@ -0,0 +1,153 @@
+package treesearch;
+
+import java.util.AbstractCollection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable circular-array deque. Elements live in a power-of-two sized
+ * array between head and head + size (mod capacity), so adding and removing
+ * at either end is O(1) and allocates nothing except when the array doubles.
+ * As a driver it behaves like a queue: add() appends, remove() takes the first.
+ */
+class RingDeque<Item> extends AbstractCollection<Item> implements Driver<Item> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  /** Largest power of two an array length can be. */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private Object[] elements;
+  private int head;
+  private int size;
+  private int modCount;
+
+  public RingDeque() { this(DEFAULT_CAPACITY); }
+
+  /** Starts with room for capacity elements, rounded up to a power of two of at most 2^30. */
+  public RingDeque(int capacity) {
+    int n = DEFAULT_CAPACITY;
+    while (n < capacity && n < MAX_CAPACITY) { n <<= 1; }
+    elements = new Object[n];
+  }
+
+  public int size() { return size; }
+  public boolean isEmpty() { return size == 0; }
+
+  public void addFirst(Item item) {
+    if (item == null) { throw new NullPointerException(); }
+    if (size == elements.length) { grow(); }
+    head = (head - 1) & (elements.length - 1);
+    elements[head] = item;
+    size ++;
+    modCount ++;
+  }
+
+  public void addLast(Item item) {
+    if (item == null) { throw new NullPointerException(); }
+    if (size == elements.length) { grow(); }
+    elements[(head + size) & (elements.length - 1)] = item;
+    size ++;
+    modCount ++;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item removeFirst() throws NoSuchElementException {
+    if (size == 0) { throw new NoSuchElementException(); }
+    Item item = (Item) elements[head];
+    elements[head] = null;
+    head = (head + 1) & (elements.length - 1);
+    size --;
+    modCount ++;
+    return item;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item removeLast() throws NoSuchElementException {
+    if (size == 0) { throw new NoSuchElementException(); }
+    int tail = (head + size - 1) & (elements.length - 1);
+    Item item = (Item) elements[tail];
+    elements[tail] = null;
+    size --;
+    modCount ++;
+    return item;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item peekFirst() {
+    return size == 0 ? null : (Item) elements[head];
+  }
+
+  @SuppressWarnings("unchecked")
+  public Item peekLast() {
+    return size == 0 ? null : (Item) elements[(head + size - 1) & (elements.length - 1)];
+  }
+
+  public boolean add(Item item) {
+    addLast(item);
+    return true;
+  }
+
+  public Item remove() throws NoSuchElementException {
+    return removeFirst();
+  }
+
+  public void clear() {
+    for (int k = 0; k < size; k ++) {
+      elements[(head + k) & (elements.length - 1)] = null;
+    }
+    head = 0;
+    size = 0;
+    modCount ++;
+  }
+
+  /** Estimated bytes held by the backing array. */
+  long footprint() { return (long) elements.length * TraversalStats.REFERENCE_BYTES; }
+
+  private void grow() {
+    if (elements.length == MAX_CAPACITY) {
+      throw new IllegalStateException("deque cannot hold more than " + MAX_CAPACITY + " elements");
+    }
+    Object[] bigger = new Object[elements.length << 1];
+    int front = elements.length - head;
+    System.arraycopy(elements, head, bigger, 0, front);
+    System.arraycopy(elements, 0, bigger, front, head);
+    elements = bigger;
+    head = 0;
+  }
+
+  /** Removes the element at logical position k by closing the gap behind it. */
+  private void removeAt(int k) {
+    int mask = elements.length - 1;
+    for (int j = k; j < size - 1; j ++) {
+      elements[(head + j) & mask] = elements[(head + j + 1) & mask];
+    }
+    elements[(head + size - 1) & mask] = null;
+    size --;
+    modCount ++;
+  }
+
+  public Iterator<Item> iterator() {
+    return new Iterator<Item>() {
+      private int next = 0;
+      private int last = -1;
+      private int expected = modCount;
+      public boolean hasNext() { return next < size; }
+      @SuppressWarnings("unchecked")
+      public Item next() throws NoSuchElementException {
+        if (expected != modCount) { throw new ConcurrentModificationException(); }
+        if (next >= size) { throw new NoSuchElementException(); }
+        last = next ++;
+        return (Item) elements[(head + last) & (elements.length - 1)];
+      }
+      public void remove() throws IllegalStateException {
+        if (last < 0) { throw new IllegalStateException(); }
+        if (expected != modCount) { throw new ConcurrentModificationException(); }
+        if (last == 0) { removeFirst(); } else { removeAt(last); }
+        next = last;
+        last = -1;
+        expected = modCount;
+      }
+    };
+  }
+}
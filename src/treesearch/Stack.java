@@ -2,7 +2,7 @@ package treesearch;
 
 import java.util.LinkedList;
 
-class Stack<Item> extends LinkedList<Item> {
+class Stack<Item> extends LinkedList<Item> implements Driver<Item> {
   private static final long serialVersionUID = 4647389309897035777L;
   public boolean add(Item item) {
     addFirst(item);
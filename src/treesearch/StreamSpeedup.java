@@ -0,0 +1,60 @@
+package treesearch;
+
+import java.util.Iterator;
+
+/**
+ * Sums the data of every node in a large balanced tree three ways: with
+ * the driver loop used in TreeSearch, with stream() and with
+ * parallelStream(), and prints the best time of several rounds.
+ * Usage: java treesearch.StreamSpeedup [depth] [fanout]
+ */
+public class StreamSpeedup {
+
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int fanout = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    Tree<Integer> t = Trees.balanced(depth, fanout);
+    System.out.println("nodes = " + t.size() + ", cores = "
+        + Runtime.getRuntime().availableProcessors());
+
+    long loop = Long.MAX_VALUE, sequential = Long.MAX_VALUE, parallel = Long.MAX_VALUE;
+    long expected = 0;
+    for (int round = 0; round < 10; round ++) {
+      long start = System.nanoTime();
+      long sum = 0;
+      for (Iterator<Tree<Integer>> i = t.iterator(new ArrayStack<Tree<Integer>>()); i.hasNext(); ) {
+        sum += work(i.next().data());
+      }
+      loop = Math.min(loop, System.nanoTime() - start);
+      expected = sum;
+
+      start = System.nanoTime();
+      sum = t.stream().mapToLong(n -> work(n.data())).sum();
+      sequential = Math.min(sequential, System.nanoTime() - start);
+      check(expected, sum);
+
+      start = System.nanoTime();
+      sum = t.parallelStream().mapToLong(n -> work(n.data())).sum();
+      parallel = Math.min(parallel, System.nanoTime() - start);
+      check(expected, sum);
+    }
+    System.out.println("sum = " + expected);
+    System.out.println("driver loop:      " + loop / 1000000 + " ms");
+    System.out.println("stream():         " + sequential / 1000000 + " ms");
+    System.out.println("parallelStream(): " + parallel / 1000000 + " ms (speedup "
+        + String.format("%.1f", (double) loop / parallel) + "x)");
+  }
+
+  /** A little arithmetic per node so the aggregation is not purely memory bound. */
+  static long work(int value) {
+    long x = value;
+    for (int k = 0; k < 16; k ++) { x = x * 6364136223846793005L + 1442695040888963407L; }
+    return x >>> 60;
+  }
+
+  static void check(long expected, long actual) {
+    if (expected != actual) {
+      throw new IllegalStateException("expected " + expected + " but got " + actual);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package treesearch;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Repeatable throughput measurements for NodeIterator with every driver
+ * over balanced, path-shaped and wide random trees. For each combination
+ * it runs warmup iterations, then timed iterations of full traversals,
+ * and reports traversals per second, nodes per second, bytes allocated
+ * per traversal and the frontier high-water mark and footprint.
+ *
+ * Usage: java treesearch.TraversalBenchmark [nodes] [warmup] [iterations] [shape,...] [driver,...]
+ *   shapes:  balanced path random
+ *   drivers: Queue Stack TreePrique ArrayQueue ArrayStack
+ * Run with a fixed heap (e.g. -Xms2g -Xmx2g) for comparable numbers.
+ */
+public class TraversalBenchmark {
+
+  static final String[] SHAPES = { "balanced", "path", "random" };
+  static final String[] DRIVERS = { "Queue", "Stack", "TreePrique", "ArrayQueue", "ArrayStack" };
+
+  /** Keeps traversal results alive so the JIT cannot drop the work. */
+  static volatile long blackhole;
+
+  public static void main(String[] args) {
+    int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    String[] shapes = args.length > 3 ? args[3].split(",") : SHAPES;
+    String[] drivers = args.length > 4 ? args[4].split(",") : DRIVERS;
+
+    System.out.println(String.format("%-9s %-11s %9s %12s %14s %12s %10s %12s",
+      "shape", "driver", "nodes", "ops/s", "nodes/s", "B/op", "frontier", "frontier B"));
+    for (String shape : shapes) {
+      Tree<Integer> t = shape(shape, nodes);
+      for (String driver : drivers) {
+        run(shape, driver, t, warmup, iterations);
+      }
+    }
+  }
+
+  static Tree<Integer> shape(String name, int nodes) {
+    if (name.equals("balanced")) {
+      // complete binary tree with at least the requested number of nodes
+      int depth = 1;
+      while ((1L << depth) - 1 < nodes) { depth ++; }
+      return Trees.balanced(depth, 2);
+    } else if (name.equals("path")) {
+      return Trees.path(nodes);
+    } else if (name.equals("random")) {
+      return Trees.random(nodes, 42);
+    }
+    throw new IllegalArgumentException("unknown shape " + name);
+  }
+
+  static Collection<Tree<Integer>> driver(String name) {
+    if (name.equals("Queue")) { return new Queue<Tree<Integer>>(); }
+    if (name.equals("Stack")) { return new Stack<Tree<Integer>>(); }
+    if (name.equals("TreePrique")) { return new TreePrique<Integer>(); }
+    if (name.equals("ArrayQueue")) { return new ArrayQueue<Tree<Integer>>(); }
+    if (name.equals("ArrayStack")) { return new ArrayStack<Tree<Integer>>(); }
+    throw new IllegalArgumentException("unknown driver " + name);
+  }
+
+  static void run(String shape, String driver, Tree<Integer> t, int warmup, int iterations) {
+    long sink = 0;
+    for (int k = 0; k < warmup; k ++) { sink += traverse(t, driver(driver), null); }
+    TraversalStats stats = new TraversalStats();
+    long bytes = 0;
+    long nanos = 0;
+    for (int k = 0; k < iterations; k ++) {
+      stats.reset();
+      Collection<Tree<Integer>> d = driver(driver);
+      long before = DriverAllocation.allocatedBytes();
+      long start = System.nanoTime();
+      sink += traverse(t, d, null);
+      nanos += System.nanoTime() - start;
+      bytes += DriverAllocation.allocatedBytes() - before;
+    }
+    // frontier figures come from one extra, separately instrumented run
+    traverse(t, driver(driver), stats);
+    double seconds = nanos / 1e9;
+    System.out.println(String.format("%-9s %-11s %9d %12.1f %14.0f %12d %10d %12d",
+      shape, driver, t.size(), iterations / seconds, (double) t.size() * iterations / seconds,
+      bytes / iterations, stats.getFrontierHighWater(), stats.getFrontierPeakBytes()));
+    blackhole = sink;
+  }
+
+  /** Sums the payloads so the traversal cannot be optimized away. */
+  static long traverse(Tree<Integer> t, Collection<Tree<Integer>> driver, TraversalListener listener) {
+    long sum = 0;
+    Iterator<Tree<Integer>> i = listener == null ? t.iterator(driver) : t.iterator(driver, listener);
+    while (i.hasNext()) { sum += i.next().data(); }
+    return sum;
+  }
+}
@@ -0,0 +1,15 @@
+package treesearch;
+
+import java.util.Collection;
+
+/**
+ * Callbacks from Tree.NodeIterator. A traversal reports started() once,
+ * visited() after each node has been taken off the frontier and its
+ * children have been added, and finished() when the frontier runs dry.
+ * finished() is not called for traversals that are abandoned early.
+ */
+interface TraversalListener {
+  void started(Tree<?> root, Collection<?> frontier);
+  void visited(Tree<?> node, Collection<?> frontier);
+  void finished();
+}
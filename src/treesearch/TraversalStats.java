@@ -0,0 +1,80 @@
+package treesearch;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.TreeSet;
+
+/**
+ * A TraversalListener that counts visited nodes, tracks the largest
+ * frontier seen (in elements and in estimated bytes) and times the
+ * traversal. One instance per traversal; call reset() to reuse it.
+ */
+class TraversalStats implements TraversalListener {
+
+  // rough per-entry costs assuming compressed references
+  static final int REFERENCE_BYTES = 4;
+  static final int LINKED_ENTRY_BYTES = 24;
+  static final int TREE_ENTRY_BYTES = 40;
+
+  private long visited;
+  private int highWater;
+  private long peakBytes;
+  private long startNanos;
+  private long elapsedNanos = -1;
+
+  public void started(Tree<?> root, Collection<?> frontier) {
+    startNanos = System.nanoTime();
+    elapsedNanos = -1;
+    record(frontier);
+  }
+
+  public void visited(Tree<?> node, Collection<?> frontier) {
+    visited ++;
+    record(frontier);
+  }
+
+  public void finished() {
+    elapsedNanos = System.nanoTime() - startNanos;
+  }
+
+  public void reset() {
+    visited = 0;
+    highWater = 0;
+    peakBytes = 0;
+    elapsedNanos = -1;
+  }
+
+  public long getVisited() { return visited; }
+  public int getFrontierHighWater() { return highWater; }
+  public long getFrontierPeakBytes() { return peakBytes; }
+  /** Wall time of the traversal, or -1 if it has not finished. */
+  public long getElapsedNanos() { return elapsedNanos; }
+
+  private void record(Collection<?> frontier) {
+    int size = frontier.size();
+    if (size > highWater) { highWater = size; }
+    long bytes = frontierBytes(frontier);
+    if (bytes > peakBytes) { peakBytes = bytes; }
+  }
+
+  /** Estimated bytes held by the frontier's own data structure. */
+  static long frontierBytes(Collection<?> frontier) {
+    if (frontier instanceof RingDeque) {
+      return ((RingDeque<?>) frontier).footprint();
+    } else if (frontier instanceof Prique) {
+      return ((Prique<?>) frontier).footprint();
+    } else if (frontier instanceof LinkedList) {
+      return (long) frontier.size() * LINKED_ENTRY_BYTES;
+    } else if (frontier instanceof TreeSet) {
+      return (long) frontier.size() * TREE_ENTRY_BYTES;
+    }
+    return (long) frontier.size() * REFERENCE_BYTES;
+  }
+
+  public String toString() {
+    return "visited = " + visited
+      + ", frontier high water = " + highWater
+      + ", frontier peak bytes = " + peakBytes
+      + ", elapsed ms = " + (elapsedNanos < 0 ? "?" : String.valueOf(elapsedNanos / 1000000));
+  }
+}
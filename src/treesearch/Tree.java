@@ -5,14 +5,44 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 interface Tree<Item> extends Iterable<Tree<Item>> {
 
   boolean isEmpty();
   int size();
+
+  /**
+   * Whether size() is known. Implicit trees such as LazyTree answer false
+   * and throw from size(); code that needs sizes checks this up front.
+   */
+  default boolean hasKnownSize() { return true; }
+
+  /** Returns tree, or fails with a message naming user if its size is unknown. */
+  static <T extends Tree<?>> T requireKnownSize(T tree, String user) {
+    if (! tree.hasKnownSize()) {
+      throw new IllegalArgumentException(user + " needs subtree sizes, but "
+          + tree + " is an implicit tree of unknown size");
+    }
+    return tree;
+  }
   Item data() throws NoSuchElementException;
   Iterator<Tree<Item>> children() throws NoSuchElementException;
   Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver);
+  Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener);
+
+  default Spliterator<Tree<Item>> spliterator() {
+    return new TreeSpliterator<Item>(this);
+  }
+  default Stream<Tree<Item>> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+  /** Splits at child boundaries and runs on the common ForkJoinPool. */
+  default Stream<Tree<Item>> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
 
   public static class Node<Item> implements Tree<Item> {
 
@@ -25,7 +55,7 @@ interface Tree<Item> extends Iterable<Tree<Item>> {
       this.data = data;
       this.children = new ArrayList<Tree<Item>>(children.length);
       for (int i = 0; i < children.length; i ++) {
-        this.children.add(children[i]);
+        this.children.add(Tree.requireKnownSize(children[i], "Tree.Node"));
         size += children[i].size();
       }
     }
@@ -42,21 +72,17 @@ interface Tree<Item> extends Iterable<Tree<Item>> {
     public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
       return new NodeIterator<Item>(this, driver);
     }
+    public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+      return new NodeIterator<Item>(this, driver, listener);
+    }
     public Iterator<Tree<Item>> iterator() {
       return iterator(new Stack<Tree<Item>>());
     }
-    public String toString() {
-      StringBuffer buffer = new StringBuffer();
-      buffer.append("(");
-      buffer.append(data);
-      Iterator<Tree<Item>> c = children.iterator();
-      while (c.hasNext()) {
-        buffer.append(", ");
-        buffer.append(c.next().toString());
-      }
-      buffer.append(")");
-      return buffer.toString();
+    /** A Node never changes, so its stream has exact sizes as long as its children keep theirs. */
+    public Spliterator<Tree<Item>> spliterator() {
+      return new TreeSpliterator<Item>(this, true);
     }
+    public String toString() { return TreeFormat.toString(this); }
   }
 
   public static class Empty<Item> implements Tree<Item> {
@@ -72,6 +98,9 @@ interface Tree<Item> extends Iterable<Tree<Item>> {
     public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
       return new EmptyIterator<Tree<Item>>();
     }
+    public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+      return new EmptyIterator<Tree<Item>>();
+    }
     public Iterator<Tree<Item>> iterator() {
       return iterator(null);
     }
@@ -82,25 +111,48 @@ interface Tree<Item> extends Iterable<Tree<Item>> {
 
     Tree<Item> subject;
     Collection<Tree<Item>> driver;
+    TraversalListener listener;
 
     public NodeIterator(Tree<Item> subject, Collection<Tree<Item>> driver) {
+      this(subject, driver, null);
+    }
+
+    /** The listener may be null, in which case nothing is recorded. */
+    public NodeIterator(Tree<Item> subject, Collection<Tree<Item>> driver,
+        TraversalListener listener) {
       this.subject = subject;
       this.driver = driver;
+      this.listener = listener;
       this.driver.add(subject);
+      if (listener != null) { listener.started(subject, driver); }
     }
 
     public boolean hasNext() {
       return ! driver.isEmpty();
     }
+    @SuppressWarnings("unchecked")
     public Tree<Item> next() throws NoSuchElementException {
-      System.out.println("driver = " + driver);
       // remove first element in driver
-      Iterator<Tree<Item>> i = driver.iterator();
-      Tree<Item> current = i.next();
-      i.remove();
-      for (i = current.children(); i.hasNext(); ) {
-        Tree<Item> child = i.next();
-        if (! child.isEmpty()) { driver.add(child); }
+      Tree<Item> current;
+      Iterator<Tree<Item>> i;
+      boolean expand = true;
+      if (driver instanceof Driver) {
+        current = ((Driver<Tree<Item>>) driver).remove();
+        expand = ((Driver<Tree<Item>>) driver).wantsChildren();
+      } else {
+        i = driver.iterator();
+        current = i.next();
+        i.remove();
+      }
+      if (expand) {
+        for (i = current.children(); i.hasNext(); ) {
+          Tree<Item> child = i.next();
+          if (! child.isEmpty()) { driver.add(child); }
+        }
+      }
+      if (listener != null) {
+        listener.visited(current, driver);
+        if (driver.isEmpty()) { listener.finished(); }
       }
       return current;
     }
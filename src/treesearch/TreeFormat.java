@@ -0,0 +1,162 @@
+package treesearch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streaming writer and parser for the text form produced by
+ * Tree.Node.toString(): a node is "(data, child, ...)" and an empty tree
+ * is "()". Both directions use an explicit stack instead of recursion, so
+ * depth is limited only by heap, and the writer copies every character
+ * exactly once. The format has no escapes: payload text must not contain
+ * '(', ')' or ',', and a node whose payload prints as "" reads back as
+ * an empty tree.
+ */
+class TreeFormat {
+
+  /** Turns the payload text between "(" and the next "," or ")" into an item. */
+  public interface Parser<Item> {
+    Item parse(String text);
+  }
+
+  public static final Parser<String> STRING = new Parser<String>() {
+    public String parse(String text) { return text; }
+  };
+
+  private TreeFormat() { }
+
+  public static String toString(Tree<?> tree) {
+    StringBuilder out = new StringBuilder();
+    try {
+      write(tree, out);
+    } catch (IOException e) {
+      throw new AssertionError(e); // StringBuilder does not throw
+    }
+    return out.toString();
+  }
+
+  /** Writes the tree to out; wrap Writers in a BufferedWriter. */
+  public static <Item> void write(Tree<Item> tree, Appendable out) throws IOException {
+    List<Iterator<Tree<Item>>> stack = new ArrayList<Iterator<Tree<Item>>>();
+    open(tree, out, stack);
+    while (! stack.isEmpty()) {
+      Iterator<Tree<Item>> top = stack.get(stack.size() - 1);
+      if (top.hasNext()) {
+        out.append(", ");
+        open(top.next(), out, stack);
+      } else {
+        stack.remove(stack.size() - 1);
+        out.append(')');
+      }
+    }
+  }
+
+  private static <Item> void open(Tree<Item> tree, Appendable out,
+      List<Iterator<Tree<Item>>> stack) throws IOException {
+    if (tree.isEmpty()) {
+      out.append("()");
+    } else {
+      out.append('(');
+      out.append(String.valueOf(tree.data()));
+      stack.add(tree.children());
+    }
+  }
+
+  /**
+   * Reads one tree from in and rebuilds it as Tree.Node objects. Besides
+   * the result, memory use is proportional to depth times the widest
+   * child list still open.
+   */
+  @SuppressWarnings("unchecked")
+  public static <Item> Tree<Item> read(Reader in, Parser<? extends Item> parser) throws IOException {
+    Scanner scan = new Scanner(in);
+    List<Frame<Item>> stack = new ArrayList<Frame<Item>>();
+    StringBuilder text = new StringBuilder();
+    for (;;) {
+      scan.expect('(');
+      // payload up to the first ',' or ')'
+      text.setLength(0);
+      int c;
+      while ((c = scan.next()) != ',' && c != ')') {
+        if (c < 0 || c == '(') { throw scan.error("unexpected " + describe(c) + " in payload"); }
+        text.append((char) c);
+      }
+      Tree<Item> done = null;
+      if (c == ',') {
+        stack.add(new Frame<Item>(parser.parse(text.toString())));
+        continue;
+      } else if (text.length() == 0) {
+        done = new Tree.Empty<Item>();
+      } else {
+        done = new Tree.Node<Item>(parser.parse(text.toString()));
+      }
+      // close finished nodes until one of them still expects a child
+      for (;;) {
+        if (stack.isEmpty()) { return done; }
+        Frame<Item> top = stack.get(stack.size() - 1);
+        top.children.add(done);
+        c = scan.nextToken();
+        if (c == ',') { break; }
+        if (c != ')') { throw scan.error("expected ',' or ')' but found " + describe(c)); }
+        stack.remove(stack.size() - 1);
+        done = new Tree.Node<Item>(top.data,
+            (Tree<Item>[]) top.children.toArray(new Tree<?>[top.children.size()]));
+      }
+    }
+  }
+
+  private static String describe(int c) {
+    return c < 0 ? "end of input" : "'" + (char) c + "'";
+  }
+
+  private static final class Frame<Item> {
+    final Item data;
+    final List<Tree<Item>> children = new ArrayList<Tree<Item>>();
+    Frame(Item data) { this.data = data; }
+  }
+
+  /** Buffered character source that tracks its position for error messages. */
+  private static final class Scanner {
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int length;
+    private int next;
+    private long position;
+
+    Scanner(Reader in) { this.in = in; }
+
+    int next() throws IOException {
+      if (next == length) {
+        length = in.read(buffer, 0, buffer.length);
+        next = 0;
+        if (length <= 0) {
+          length = 0;
+          return -1;
+        }
+      }
+      position ++;
+      return buffer[next ++];
+    }
+
+    /** Next character that is not whitespace. */
+    int nextToken() throws IOException {
+      int c;
+      do { c = next(); } while (c >= 0 && Character.isWhitespace(c));
+      return c;
+    }
+
+    void expect(char expected) throws IOException {
+      int c = nextToken();
+      if (c != expected) {
+        throw error("expected '" + expected + "' but found " + describe(c));
+      }
+    }
+
+    IOException error(String message) {
+      return new IOException(message + " at character " + position);
+    }
+  }
+}
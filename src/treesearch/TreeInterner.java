@@ -0,0 +1,222 @@
+package treesearch;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Hash-consing factory for trees: structurally equal subtrees built through
+ * the same interner are one shared instance. Each shared node caches a
+ * structural hash code, and because there is only one instance per
+ * structure, equals() is identity and costs O(1).
+ *
+ * The table holds its nodes through weak references, so subtrees that are
+ * no longer referenced from outside can be collected; stale entries are
+ * purged on the next call. Payloads are compared with equals(). All
+ * methods synchronize on the interner.
+ */
+class TreeInterner<Item> {
+
+  private final Tree<Item> empty = new Tree.Empty<Item>();
+  private final ReferenceQueue<Shared<Item>> stale = new ReferenceQueue<Shared<Item>>();
+  private Entry<Item>[] table;
+  private int count;
+  private long requests;
+
+  @SuppressWarnings("unchecked")
+  public TreeInterner() {
+    table = (Entry<Item>[]) new Entry<?>[64];
+  }
+
+  /** The shared empty tree of this interner. */
+  public Tree<Item> empty() { return empty; }
+
+  /** The shared leaf holding data. */
+  @SuppressWarnings("unchecked")
+  public Tree<Item> node(Item data) {
+    return node(data, (Tree<Item>[]) new Tree<?>[0]);
+  }
+
+  /** The shared node holding data over the given children, interning them first if needed. */
+  @SafeVarargs
+  @SuppressWarnings("unchecked")
+  public final synchronized Tree<Item> node(Item data, Tree<Item>... children) {
+    // a fresh array, so the caller's varargs array never escapes
+    Tree<Item>[] shared = (Tree<Item>[]) new Tree<?>[children.length];
+    for (int i = 0; i < shared.length; i ++) {
+      shared[i] = owns(children[i]) ? children[i] : intern(children[i]);
+    }
+    return lookup(data, shared);
+  }
+
+  /** The shared copy of an arbitrary tree, built bottom-up without recursion. */
+  @SuppressWarnings("unchecked")
+  public synchronized Tree<Item> intern(Tree<Item> tree) {
+    if (owns(tree)) { return tree; }
+    if (tree.isEmpty()) { return empty; }
+    // postorder with an explicit stack: each frame collects its shared children
+    List<Tree<Item>> nodes = new ArrayList<Tree<Item>>();
+    List<Iterator<Tree<Item>>> pending = new ArrayList<Iterator<Tree<Item>>>();
+    List<List<Tree<Item>>> done = new ArrayList<List<Tree<Item>>>();
+    nodes.add(tree);
+    pending.add(tree.children());
+    done.add(new ArrayList<Tree<Item>>());
+    for (;;) {
+      int top = nodes.size() - 1;
+      Iterator<Tree<Item>> i = pending.get(top);
+      if (i.hasNext()) {
+        Tree<Item> child = i.next();
+        if (owns(child)) {
+          done.get(top).add(child);
+        } else if (child.isEmpty()) {
+          done.get(top).add(empty);
+        } else {
+          nodes.add(child);
+          pending.add(child.children());
+          done.add(new ArrayList<Tree<Item>>());
+        }
+        continue;
+      }
+      List<Tree<Item>> kids = done.remove(top);
+      pending.remove(top);
+      Tree<Item> shared = lookup(nodes.remove(top).data(), (Tree<Item>[]) kids.toArray(new Tree<?>[kids.size()]));
+      if (top == 0) { return shared; }
+      done.get(top - 1).add(shared);
+    }
+  }
+
+  /** Number of distinct live nodes in the table. */
+  public synchronized int size() {
+    purge();
+    return count;
+  }
+
+  /** Number of node lookups so far, to compare with size(). */
+  public synchronized long requests() { return requests; }
+
+  private boolean owns(Tree<Item> tree) {
+    return tree == empty || (tree instanceof Shared && ((Shared<?>) tree).owner == this);
+  }
+
+  private Tree<Item> lookup(Item data, Tree<Item>[] children) {
+    purge();
+    requests ++;
+    int hash = hash(data, children);
+    int slot = hash & (table.length - 1);
+    for (Entry<Item> e = table[slot]; e != null; e = e.next) {
+      Shared<Item> candidate = e.get();
+      if (candidate != null && e.hash == hash && candidate.matches(data, children)) {
+        return candidate;
+      }
+    }
+    Shared<Item> created = new Shared<Item>(this, data, children, hash);
+    table[slot] = new Entry<Item>(created, stale, hash, table[slot]);
+    if (++ count > table.length * 3 / 4) { resize(); }
+    return created;
+  }
+
+  static int hash(Object data, Tree<?>[] children) {
+    int h = data == null ? 0 : data.hashCode();
+    for (Tree<?> child : children) {
+      h = 31 * h + (child.isEmpty() ? 0 : child.hashCode());
+    }
+    return h;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void purge() {
+    Entry<Item> dead;
+    while ((dead = (Entry<Item>) stale.poll()) != null) {
+      int slot = dead.hash & (table.length - 1);
+      Entry<Item> previous = null;
+      for (Entry<Item> e = table[slot]; e != null; previous = e, e = e.next) {
+        if (e == dead) {
+          if (previous == null) { table[slot] = e.next; } else { previous.next = e.next; }
+          count --;
+          break;
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void resize() {
+    Entry<Item>[] bigger = (Entry<Item>[]) new Entry<?>[table.length << 1];
+    for (Entry<Item> head : table) {
+      for (Entry<Item> e = head, next; e != null; e = next) {
+        next = e.next;
+        int slot = e.hash & (bigger.length - 1);
+        e.next = bigger[slot];
+        bigger[slot] = e;
+      }
+    }
+    table = bigger;
+  }
+
+  private static final class Entry<Item> extends WeakReference<Shared<Item>> {
+    final int hash;
+    Entry<Item> next;
+    Entry(Shared<Item> node, ReferenceQueue<Shared<Item>> queue, int hash, Entry<Item> next) {
+      super(node, queue);
+      this.hash = hash;
+      this.next = next;
+    }
+  }
+
+  /** A node owned by an interner; its children are shared nodes of the same interner. */
+  static final class Shared<Item> implements Tree<Item> {
+
+    private final TreeInterner<Item> owner;
+    private final Item data;
+    private final Tree<Item>[] children;
+    private final int size;
+    private final int hash;
+
+    Shared(TreeInterner<Item> owner, Item data, Tree<Item>[] children, int hash) {
+      this.owner = owner;
+      this.data = data;
+      this.children = children;
+      this.hash = hash;
+      int n = 1;
+      for (Tree<Item> child : children) { n += child.size(); }
+      this.size = n;
+    }
+
+    boolean matches(Item data, Tree<Item>[] children) {
+      if (this.children.length != children.length) { return false; }
+      for (int i = 0; i < children.length; i ++) {
+        if (this.children[i] != children[i]) { return false; }
+      }
+      return this.data == null ? data == null : this.data.equals(data);
+    }
+
+    public boolean isEmpty() { return false; }
+    public int size() { return size; }
+    public Item data() { return data; }
+    public Iterator<Tree<Item>> children() {
+      return Arrays.asList(children).iterator();
+    }
+    public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver) {
+      return new NodeIterator<Item>(this, driver);
+    }
+    public Iterator<Tree<Item>> iterator(Collection<Tree<Item>> driver, TraversalListener listener) {
+      return new NodeIterator<Item>(this, driver, listener);
+    }
+    public Iterator<Tree<Item>> iterator() {
+      return iterator(new Stack<Tree<Item>>());
+    }
+    public Spliterator<Tree<Item>> spliterator() {
+      return new TreeSpliterator<Item>(this, true);
+    }
+
+    /** Structural: equal trees from the same interner are the same instance. */
+    public boolean equals(Object that) { return this == that; }
+    public int hashCode() { return hash; }
+    public String toString() { return TreeFormat.toString(this); }
+  }
+}
@@ -1,24 +1,23 @@
 package treesearch;
 
-import java.util.TreeSet;
 import java.util.Comparator;
 
-class TreePrique<Item> extends TreeSet<Tree<Item>> {
-  private static final long serialVersionUID = -2121485040232082516L;
+/**
+ * Visits smaller subtrees first. Subtrees of the same size come out in the
+ * order they were discovered. Trees of unknown size are rejected on add().
+ */
+class TreePrique<Item> extends Prique<Tree<Item>> {
   public TreePrique() {
     super(new Comparator<Tree<Item>>() {
       public int compare(Tree<Item> left, Tree<Item> right) {
-        // ordering based on size
-        int result = left.size() - right.size();
-        if (result != 0) {
-          return result;
-        } else {
-          // if the two trees are of the same size we still need to distinguish
-          // them artificially so that the set doesn't count them as a single
-          // element
-          return left.hashCode() - right.hashCode();
-        }
+        // ordering based on size; ties are broken by insertion order
+        int l = left.size(), r = right.size();
+        return l < r ? -1 : (l == r ? 0 : 1);
       }
     });
   }
-}
\ No newline at end of file
+
+  public boolean add(Tree<Item> tree) {
+    return super.add(Tree.requireKnownSize(tree, "TreePrique"));
+  }
+}
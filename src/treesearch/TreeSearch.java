@@ -1,5 +1,6 @@
 package treesearch;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 public class TreeSearch {
@@ -30,9 +31,86 @@ public class TreeSearch {
     }
     System.out.println();
 
+    for (Iterator<Tree<String>> i = t.iterator(new ArrayQueue<Tree<String>>()); i.hasNext(); ) {
+      System.out.print(i.next().data() + " ");
+    }
+    System.out.println();
+
+    for (Iterator<Tree<String>> i = t.iterator(new ArrayStack<Tree<String>>()); i.hasNext(); ) {
+      System.out.print(i.next().data() + " ");
+    }
+    System.out.println();
+
     for (Iterator<Tree<String>> i = t.iterator(new TreePrique<String>()); i.hasNext(); ) {
       System.out.print(((Tree<String>) i.next()).data() + " ");
     }
     System.out.println();
+
+    java.io.File file = java.io.File.createTempFile("tree", ".bin");
+    file.deleteOnExit();
+    MappedTree.write(t, MappedTree.STRING, file);
+    System.out.println(MappedTree.open(file, MappedTree.STRING));
+
+    Tree<String> parsed = TreeFormat.read(new java.io.StringReader(t.toString()), TreeFormat.STRING);
+    System.out.println(parsed);
+
+    TreeInterner<String> interner = new TreeInterner<String>();
+    Tree<String> shared = interner.intern(t);
+    System.out.println((shared == interner.intern(parsed)) + " "
+      + interner.node("x", interner.node("5"), interner.node("5"), interner.node("5"))
+      + " " + interner.size() + " distinct of " + interner.requests());
+
+    Tree<String> c = CompactTree.build(t);
+    System.out.println(c);
+    for (Iterator<Tree<String>> i = c.iterator(new ArrayQueue<Tree<String>>()); i.hasNext(); ) {
+      System.out.print(i.next().data() + " ");
+    }
+    System.out.println();
+
+    // implicit infinite binary tree: the children of n are 2n and 2n + 1
+    Tree<Integer> heap = new LazyTree<Integer>(1, new LazyTree.Expander<Integer>() {
+      public Iterable<Integer> expand(Integer n) { return Arrays.asList(2 * n, 2 * n + 1); }
+    });
+    for (Iterator<Tree<Integer>> i = heap.iterator(new DepthLimitedStack<Tree<Integer>>(2)); i.hasNext(); ) {
+      System.out.print(i.next().data() + " ");
+    }
+    System.out.println();
+    for (Iterator<Tree<Integer>> i = new IterativeDeepening<Integer>(heap, 3); i.hasNext(); ) {
+      System.out.print(i.next().data() + " ");
+    }
+    System.out.println();
+
+    for (Iterator<LevelIterator.Level<String>> i = new LevelIterator<String>(t); i.hasNext(); ) {
+      LevelIterator.Level<String> level = i.next();
+      System.out.print(level.depth() + ":");
+      for (Tree<String> node : level.nodes()) { System.out.print(" " + node.data()); }
+      System.out.print(i.hasNext() ? "  " : "\n");
+    }
+
+    // uniform-cost search for "7" with unit steps
+    BestFirstSearch<String> find7 = new BestFirstSearch<String>(
+      s -> s.equals("7"), (from, to) -> 1);
+    for (Tree<String> step : find7.search(t)) {
+      System.out.print(step.data() + " ");
+    }
+    System.out.println("(expanded " + find7.expanded() + ")");
+
+    // A* for 13 in the implicit binary tree; remaining levels is admissible
+    BestFirstSearch<Integer> find13 = new BestFirstSearch<Integer>(
+      n -> n == 13, (from, to) -> 1,
+      n -> Math.max(0, (31 - Integer.numberOfLeadingZeros(13)) - (31 - Integer.numberOfLeadingZeros(n))));
+    for (Tree<Integer> step : find13.search(heap)) {
+      System.out.print(step.data() + " ");
+    }
+    System.out.println("(expanded " + find13.expanded() + ")");
+
+    // largest subtree first
+    Prique<Tree<String>> largest = new Prique<Tree<String>>(new Prique.Cost<Tree<String>>() {
+      public double cost(Tree<String> tree) { return - tree.size(); }
+    });
+    for (Iterator<Tree<String>> i = t.iterator(largest); i.hasNext(); ) {
+      System.out.print(i.next().data() + " ");
+    }
+    System.out.println();
   }
 }
@@ -0,0 +1,109 @@
+package treesearch;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over all nodes of a tree. Pending work is a set of whole
+ * subtrees plus a few single nodes whose children have already been
+ * handed out, so the remaining count is the number of single nodes plus
+ * the size() of each pending subtree. trySplit() gives away whole
+ * subtrees until about half of the remaining nodes have moved, opening up
+ * a subtree at its child boundary when only one is left. A chain of lone
+ * children is opened at most OPEN_LIMIT levels deep per call; a path-shaped
+ * tree cannot be split usefully, so trySplit() gives up there instead of
+ * walking the whole path. Encounter order is unspecified.
+ *
+ * The count is exact only if no size() changes during the traversal, so
+ * by default the spliterator reports just NONNULL and the count is an
+ * estimate. Tree types that never change pass immutable = true to report
+ * SIZED, SUBSIZED and IMMUTABLE as well.
+ */
+class TreeSpliterator<Item> implements Spliterator<Tree<Item>> {
+
+  /** Levels of lone children trySplit() opens before giving up. */
+  static final int OPEN_LIMIT = 64;
+
+  private final ArrayStack<Tree<Item>> singles = new ArrayStack<Tree<Item>>();
+  private final ArrayStack<Tree<Item>> subtrees = new ArrayStack<Tree<Item>>();
+  private final int characteristics;
+  private int remaining;
+
+  /** A spliterator that does not rely on sizes staying fixed. */
+  public TreeSpliterator(Tree<Item> root) {
+    this(root, false);
+  }
+
+  /** With immutable = true, the tree promises that no node or size ever changes. */
+  public TreeSpliterator(Tree<Item> root, boolean immutable) {
+    this(immutable ? SIZED | SUBSIZED | NONNULL | IMMUTABLE : NONNULL);
+    if (! root.isEmpty()) {
+      subtrees.add(root);
+      remaining = Tree.requireKnownSize(root, "TreeSpliterator").size();
+    }
+  }
+
+  private TreeSpliterator(int characteristics) {
+    this.characteristics = characteristics;
+  }
+
+  public boolean tryAdvance(Consumer<? super Tree<Item>> action) {
+    Tree<Item> current;
+    if (! singles.isEmpty()) {
+      current = singles.remove();
+    } else if (! subtrees.isEmpty()) {
+      current = subtrees.remove();
+      pushChildren(current);
+    } else {
+      return false;
+    }
+    remaining --;
+    action.accept(current);
+    return true;
+  }
+
+  public void forEachRemaining(Consumer<? super Tree<Item>> action) {
+    while (! singles.isEmpty()) {
+      remaining --;
+      action.accept(singles.remove());
+    }
+    while (! subtrees.isEmpty()) {
+      Tree<Item> current = subtrees.remove();
+      pushChildren(current);
+      remaining --;
+      action.accept(current);
+    }
+  }
+
+  public Spliterator<Tree<Item>> trySplit() {
+    // open up lone subtrees until there is something to share
+    for (int opened = 0; subtrees.size() == 1 && subtrees.peekFirst().size() > 1; opened ++) {
+      if (opened == OPEN_LIMIT) { return null; }
+      Tree<Item> only = subtrees.remove();
+      singles.add(only);
+      pushChildren(only);
+    }
+    if (subtrees.size() < 2) { return null; }
+    TreeSpliterator<Item> prefix = new TreeSpliterator<Item>(characteristics);
+    int half = remaining / 2;
+    while (prefix.remaining < half && subtrees.size() > 1) {
+      Tree<Item> t = subtrees.removeLast();
+      prefix.subtrees.addFirst(t);
+      prefix.remaining += t.size();
+    }
+    remaining -= prefix.remaining;
+    return prefix;
+  }
+
+  public long estimateSize() { return remaining; }
+
+  public int characteristics() { return characteristics; }
+
+  private void pushChildren(Tree<Item> node) {
+    for (Iterator<Tree<Item>> i = node.children(); i.hasNext(); ) {
+      Tree<Item> child = i.next();
+      if (! child.isEmpty()) { subtrees.add(child); }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package treesearch;
+
+/** Tree generators shared by the demos and measurements in this package. */
+class Trees {
+
+  private Trees() { }
+
+  /** A complete tree of the given depth; each node holds its height. */
+  @SuppressWarnings("unchecked")
+  static Tree<Integer> balanced(int depth, int fanout) {
+    if (depth <= 1) { return new Tree.Node<Integer>(depth); }
+    Tree<Integer>[] children = (Tree<Integer>[]) new Tree<?>[fanout];
+    for (int i = 0; i < fanout; i ++) {
+      children[i] = balanced(depth - 1, fanout);
+    }
+    return new Tree.Node<Integer>(depth, children);
+  }
+
+  /** A degenerate tree: a single path of the given length, built without recursion. */
+  @SuppressWarnings("unchecked")
+  static Tree<Integer> path(int nodes) {
+    Tree<Integer> node = new Tree.Node<Integer>(nodes - 1);
+    for (int i = nodes - 2; i >= 0; i --) {
+      node = new Tree.Node<Integer>(i, node);
+    }
+    return node;
+  }
+
+  /**
+   * A random recursive tree: node i (its payload) hangs under a uniformly
+   * chosen earlier node, which gives wide trees of logarithmic depth.
+   * Built bottom-up without recursion.
+   */
+  @SuppressWarnings("unchecked")
+  static Tree<Integer> random(int nodes, long seed) {
+    java.util.Random random = new java.util.Random(seed);
+    int[] parent = new int[nodes];
+    int[] degree = new int[nodes];
+    for (int i = 1; i < nodes; i ++) {
+      parent[i] = random.nextInt(i);
+      degree[parent[i]] ++;
+    }
+    Tree<Integer>[][] children = (Tree<Integer>[][]) new Tree<?>[nodes][];
+    for (int i = 0; i < nodes; i ++) { children[i] = (Tree<Integer>[]) new Tree<?>[degree[i]]; }
+    Tree<Integer> node = null;
+    for (int i = nodes - 1; i >= 0; i --) {
+      node = new Tree.Node<Integer>(i, children[i]);
+      children[i] = null;
+      if (i > 0) { children[parent[i]][-- degree[parent[i]]] = node; }
+    }
+    return node;
+  }
+}
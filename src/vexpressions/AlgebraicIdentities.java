@@ -0,0 +1,42 @@
+package vexpressions;
+
+/**
+ * x + 0, 0 + x, x - 0, x * 1, 1 * x, x / 1 become x; 0 - x, x * -1, x / -1
+ * become -x; - - x becomes x; x * 0 and x % 1 become 0 only if x cannot throw.
+ */
+class AlgebraicIdentities extends RewritePass {
+  protected Expr plus(Plus e, Expr l, Expr r) {
+    if (ExprOptimizer.is(r, 0)) { return l; }
+    if (ExprOptimizer.is(l, 0)) { return r; }
+    return super.plus(e, l, r);
+  }
+  protected Expr minus(Minus e, Expr l, Expr r) {
+    if (ExprOptimizer.is(r, 0)) { return l; }
+    if (ExprOptimizer.is(l, 0)) { return new UMinus(r); }
+    return super.minus(e, l, r);
+  }
+  protected Expr times(Times e, Expr l, Expr r) {
+    if (ExprOptimizer.is(r, 1)) { return l; }
+    if (ExprOptimizer.is(l, 1)) { return r; }
+    if (ExprOptimizer.is(r, -1)) { return new UMinus(l); }
+    if (ExprOptimizer.is(l, -1)) { return new UMinus(r); }
+    if (ExprOptimizer.is(r, 0) && ! ExprOptimizer.canThrow(l)) { return r; }
+    if (ExprOptimizer.is(l, 0) && ! ExprOptimizer.canThrow(r)) { return l; }
+    return super.times(e, l, r);
+  }
+  protected Expr div(Div e, Expr l, Expr r) {
+    if (ExprOptimizer.is(r, 1)) { return l; }
+    if (ExprOptimizer.is(r, -1)) { return new UMinus(l); }
+    return super.div(e, l, r);
+  }
+  protected Expr mod(Mod e, Expr l, Expr r) {
+    if ((ExprOptimizer.is(r, 1) || ExprOptimizer.is(r, -1)) && ! ExprOptimizer.canThrow(l)) {
+      return new Constant(0);
+    }
+    return super.mod(e, l, r);
+  }
+  protected Expr uminus(UMinus e, Expr x) {
+    if (x instanceof UMinus) { return ((UMinus) x).getExpr(); }
+    return super.uminus(e, x);
+  }
+}
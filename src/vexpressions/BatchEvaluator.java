@@ -0,0 +1,171 @@
+package vexpressions;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates one formula for every row of a set of int columns. The formula
+ * is flattened once into postfix code; evaluation then runs the code over
+ * CHUNK rows at a time with one int array per operand stack slot, so every
+ * operator is a plain loop over a chunk that the JIT vectorizes, instead
+ * of a full tree walk per row. Understands all node types of this package
+ * including the lowered ones and Column. A BatchEvaluator is immutable and
+ * can be used from many threads at once.
+ */
+class BatchEvaluator {
+
+  static final int CONST = 0, COLUMN = 1, PLUS = 2, MINUS = 3, TIMES = 4, DIV = 5, MOD = 6;
+  static final int NEG = 7, SHL = 8, DIVC = 9;
+
+  /** Rows evaluated together; a chunk of every stack slot stays in cache. */
+  static final int CHUNK = 1024;
+
+  // CONST, COLUMN and SHL are followed by their constant, column index or
+  // shift; DIVC by the magic number, the shift and the correction sign
+  private final int[] code;
+  private final int maxStack;
+
+  private BatchEvaluator(int[] code, int maxStack) {
+    this.code = code;
+    this.maxStack = maxStack;
+  }
+
+  public static BatchEvaluator compile(Expr e) {
+    Compiler c = new Compiler();
+    int maxStack = e.accept(c);
+    return new BatchEvaluator(Arrays.copyOf(c.code, c.length), maxStack);
+  }
+
+  /**
+   * Stores the value of row r in result[r], reading columns[i][r] for
+   * Column(i). Division by zero in any row throws ArithmeticException,
+   * leaving result partly written.
+   */
+  public void evaluate(int[][] columns, int[] result) {
+    int[] code = this.code;
+    int rows = result.length;
+    for (int pc = 0; pc < code.length; pc += width(code[pc])) {
+      if (code[pc] == COLUMN && columns[code[pc + 1]].length < rows) {
+        throw new IllegalArgumentException("column " + code[pc + 1] + " has fewer than " + rows + " rows");
+      }
+    }
+    int[][] stack = new int[maxStack][Math.min(CHUNK, rows)];
+    for (int from = 0; from < rows; from += CHUNK) {
+      int n = Math.min(CHUNK, rows - from);
+      int sp = 0;
+      for (int pc = 0; pc < code.length; pc ++) {
+        switch (code[pc]) {
+        case CONST: Arrays.fill(stack[sp ++], 0, n, code[++ pc]); break;
+        case COLUMN: System.arraycopy(columns[code[++ pc]], from, stack[sp ++], 0, n); break;
+        case PLUS: sp --; plus(stack[sp - 1], stack[sp], n); break;
+        case MINUS: sp --; minus(stack[sp - 1], stack[sp], n); break;
+        case TIMES: sp --; times(stack[sp - 1], stack[sp], n); break;
+        case DIV: sp --; div(stack[sp - 1], stack[sp], n); break;
+        case MOD: sp --; mod(stack[sp - 1], stack[sp], n); break;
+        case NEG: neg(stack[sp - 1], n); break;
+        case SHL: shl(stack[sp - 1], n, code[++ pc]); break;
+        case DIVC: divc(stack[sp - 1], n, code[pc + 1], code[pc + 2], code[pc + 3]); pc += 3; break;
+        default: throw new IllegalStateException("bad opcode " + code[pc] + " at " + pc);
+        }
+      }
+      System.arraycopy(stack[0], 0, result, from, n);
+    }
+  }
+
+  public int stackSize() { return maxStack; }
+
+  private static int width(int op) {
+    switch (op) {
+    case CONST: case COLUMN: case SHL: return 2;
+    case DIVC: return 4;
+    default: return 1;
+    }
+  }
+
+  private static void plus(int[] a, int[] b, int n) {
+    for (int i = 0; i < n; i ++) { a[i] += b[i]; }
+  }
+
+  private static void minus(int[] a, int[] b, int n) {
+    for (int i = 0; i < n; i ++) { a[i] -= b[i]; }
+  }
+
+  private static void times(int[] a, int[] b, int n) {
+    for (int i = 0; i < n; i ++) { a[i] *= b[i]; }
+  }
+
+  private static void div(int[] a, int[] b, int n) {
+    for (int i = 0; i < n; i ++) { a[i] /= b[i]; }
+  }
+
+  private static void mod(int[] a, int[] b, int n) {
+    for (int i = 0; i < n; i ++) { a[i] %= b[i]; }
+  }
+
+  private static void neg(int[] a, int n) {
+    for (int i = 0; i < n; i ++) { a[i] = - a[i]; }
+  }
+
+  private static void shl(int[] a, int n, int shift) {
+    for (int i = 0; i < n; i ++) { a[i] <<= shift; }
+  }
+
+  /** DivByConstant.divide() with its sign tests hoisted out of the loop. */
+  private static void divc(int[] a, int n, int magic, int shift, int sign) {
+    for (int i = 0; i < n; i ++) {
+      int x = a[i];
+      int q = (int) (((long) magic * x) >> 32) + sign * x;
+      q >>= shift;
+      a[i] = q + (q >>> 31);
+    }
+  }
+
+  /** Postorder walk emitting code; each visit returns the stack depth its subtree needs. */
+  private static final class Compiler implements ColumnExprVisitor<Integer> {
+    int[] code = new int[64];
+    int length;
+
+    public Integer visitConstant(Constant e) { return emit(CONST, e.getValue()); }
+    public Integer visitColumn(Column e) { return emit(COLUMN, e.getIndex()); }
+    public Integer visitPlus(Plus e) { return binary(PLUS, e.getLeft(), e.getRight()); }
+    public Integer visitMinus(Minus e) { return binary(MINUS, e.getLeft(), e.getRight()); }
+    public Integer visitTimes(Times e) { return binary(TIMES, e.getLeft(), e.getRight()); }
+    public Integer visitDiv(Div e) { return binary(DIV, e.getLeft(), e.getRight()); }
+    public Integer visitMod(Mod e) { return binary(MOD, e.getLeft(), e.getRight()); }
+    public Integer visitUMinus(UMinus e) {
+      int depth = e.getExpr().accept(this);
+      emit(NEG);
+      return depth;
+    }
+    public Integer visitShiftLeft(ShiftLeft e) {
+      int depth = e.getExpr().accept(this);
+      emit(SHL, e.getShift());
+      return depth;
+    }
+    public Integer visitDivByConstant(DivByConstant e) {
+      int depth = e.getExpr().accept(this);
+      int sign = e.divisor > 0 && e.magic < 0 ? 1 : e.divisor < 0 && e.magic > 0 ? -1 : 0;
+      emit(DIVC, e.magic);
+      emit(e.shift);
+      emit(sign);
+      return depth;
+    }
+
+    private int binary(int op, Expr left, Expr right) {
+      int l = left.accept(this);
+      int r = right.accept(this);
+      emit(op);
+      return Math.max(l, r + 1);
+    }
+
+    private int emit(int op, int operand) {
+      emit(op);
+      emit(operand);
+      return 1;
+    }
+
+    private void emit(int word) {
+      if (length == code.length) { code = Arrays.copyOf(code, length << 1); }
+      code[length ++] = word;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package vexpressions;
+
+/**
+ * The value of column index in the row being evaluated. Formulas with
+ * columns are evaluated one row at a time with ColumnIntEvaluate, or over
+ * whole columns with BatchEvaluator.
+ */
+class Column implements Expr {
+  protected final int index;
+  public Column(int index) { this.index = index; }
+  public int getIndex() { return index; }
+  public long getSize() { return 1; }
+  public boolean hasColumn() { return true; }
+  public <Result> Result accept(ExprVisitor<Result> v) { 
+    return ((ColumnExprVisitor<Result>) v).visitColumn(this); 
+  }
+  public int acceptInt(IntExprVisitor v) {
+    return ((ColumnIntExprVisitor) v).visitColumn(this);
+  }
+}
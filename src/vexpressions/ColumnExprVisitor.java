@@ -0,0 +1,5 @@
+package vexpressions;
+
+interface ColumnExprVisitor<Result> extends LoweredExprVisitor<Result> {
+  Result visitColumn(Column e);
+}
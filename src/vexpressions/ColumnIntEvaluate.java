@@ -0,0 +1,10 @@
+package vexpressions;
+
+/** Evaluates the formula for one row of the columns; set the row before each evaluation. */
+class ColumnIntEvaluate extends LoweredIntEvaluate implements ColumnIntExprVisitor {
+  private final int[][] columns;
+  private int row;
+  public ColumnIntEvaluate(int[][] columns) { this.columns = columns; }
+  public void setRow(int row) { this.row = row; }
+  public int visitColumn(Column e) { return columns[e.getIndex()][row]; }
+}
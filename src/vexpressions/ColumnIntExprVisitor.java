@@ -0,0 +1,5 @@
+package vexpressions;
+
+interface ColumnIntExprVisitor extends LoweredIntExprVisitor {
+  int visitColumn(Column e);
+}
@@ -0,0 +1,11 @@
+package vexpressions;
+
+class ColumnPrint extends LoweredPrint implements ColumnExprVisitor<String> {
+  public ColumnPrint() { }
+  public ColumnPrint(String prefix) { super(prefix); }
+  /** Factory method. */
+  protected ExprVisitor<String> newPrint(String prefix) { 
+    return new ColumnPrint(prefix); 
+  }
+  public String visitColumn(Column e) { return prefix + "Column(" + e.getIndex() + ")"; }
+}
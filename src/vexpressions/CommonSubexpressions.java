@@ -0,0 +1,96 @@
+package vexpressions;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Rewrite pass that hash-conses the tree: structurally equal subtrees come
+ * back as one shared instance, turning the tree into a DAG. Its table
+ * lives as long as the pass, so running it again (e.g. inside an
+ * ExprOptimizer) returns the same instances and reaches a fixed point.
+ * Shared input nodes are rewritten once, so DAG inputs stay cheap.
+ */
+class CommonSubexpressions extends RewritePass {
+
+  private final Map<Key, Expr> table = new HashMap<Key, Expr>();
+  private final Map<Expr, Expr> done = new IdentityHashMap<Expr, Expr>();
+  private long requests;
+
+  /** Nodes looked up so far. */
+  public long requests() { return requests; }
+
+  /** Distinct nodes kept. */
+  public int distinct() { return table.size(); }
+
+  public Expr visitConstant(Constant e) { return intern(e, null, null, e.getValue()); }
+  public Expr visitColumn(Column e) { return intern(e, null, null, e.getIndex()); }
+  public Expr visitPlus(Plus e) { return memo(e) != null ? memo(e) : remember(e, super.visitPlus(e)); }
+  public Expr visitMinus(Minus e) { return memo(e) != null ? memo(e) : remember(e, super.visitMinus(e)); }
+  public Expr visitTimes(Times e) { return memo(e) != null ? memo(e) : remember(e, super.visitTimes(e)); }
+  public Expr visitDiv(Div e) { return memo(e) != null ? memo(e) : remember(e, super.visitDiv(e)); }
+  public Expr visitMod(Mod e) { return memo(e) != null ? memo(e) : remember(e, super.visitMod(e)); }
+  public Expr visitUMinus(UMinus e) { return memo(e) != null ? memo(e) : remember(e, super.visitUMinus(e)); }
+  public Expr visitShiftLeft(ShiftLeft e) {
+    return memo(e) != null ? memo(e) : remember(e, super.visitShiftLeft(e));
+  }
+  public Expr visitDivByConstant(DivByConstant e) {
+    return memo(e) != null ? memo(e) : remember(e, super.visitDivByConstant(e));
+  }
+
+  protected Expr plus(Plus e, Expr l, Expr r) { return intern(super.plus(e, l, r), l, r, 0); }
+  protected Expr minus(Minus e, Expr l, Expr r) { return intern(super.minus(e, l, r), l, r, 0); }
+  protected Expr times(Times e, Expr l, Expr r) { return intern(super.times(e, l, r), l, r, 0); }
+  protected Expr div(Div e, Expr l, Expr r) { return intern(super.div(e, l, r), l, r, 0); }
+  protected Expr mod(Mod e, Expr l, Expr r) { return intern(super.mod(e, l, r), l, r, 0); }
+  protected Expr uminus(UMinus e, Expr x) { return intern(super.uminus(e, x), x, null, 0); }
+  protected Expr shiftLeft(ShiftLeft e, Expr x) {
+    return intern(super.shiftLeft(e, x), x, null, e.getShift());
+  }
+  protected Expr divByConstant(DivByConstant e, Expr x) {
+    return intern(super.divByConstant(e, x), x, null, e.getDivisor());
+  }
+
+  private Expr memo(Expr e) { return done.get(e); }
+
+  private Expr remember(Expr e, Expr result) {
+    done.put(e, result);
+    return result;
+  }
+
+  /** Returns the shared instance equal to candidate, whose children are already shared. */
+  private Expr intern(Expr candidate, Expr left, Expr right, int value) {
+    requests ++;
+    Key key = new Key(candidate.getClass(), left, right, value);
+    Expr shared = table.get(key);
+    if (shared == null) {
+      shared = candidate;
+      table.put(key, shared);
+    }
+    return shared;
+  }
+
+  /** Node class, identities of the (shared) children and the int attribute. */
+  private static final class Key {
+    final Class<?> type;
+    final Expr left, right;
+    final int value;
+    Key(Class<?> type, Expr left, Expr right, int value) {
+      this.type = type;
+      this.left = left;
+      this.right = right;
+      this.value = value;
+    }
+    public boolean equals(Object o) {
+      if (! (o instanceof Key)) { return false; }
+      Key k = (Key) o;
+      return type == k.type && left == k.left && right == k.right && value == k.value;
+    }
+    public int hashCode() {
+      int h = type.hashCode();
+      h = h * 31 + System.identityHashCode(left);
+      h = h * 31 + System.identityHashCode(right);
+      return h * 31 + value;
+    }
+  }
+}
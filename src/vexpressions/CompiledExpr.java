@@ -0,0 +1,6 @@
+package vexpressions;
+
+/** An expression compiled to bytecode by ExprCompiler. */
+interface CompiledExpr {
+  int eval();
+}
@@ -0,0 +1,14 @@
+package vexpressions;
+
+class Constant implements Expr {
+  protected final int val;
+  public Constant() { this(0); }
+  public Constant(int w) { val = w; }
+  public int getValue() { return val; }
+  public long getSize() { return 1; }
+  public boolean hasColumn() { return false; }
+  public <Result> Result accept(ExprVisitor<Result> v) { 
+    return v.visitConstant(this); 
+  }
+  public int acceptInt(IntExprVisitor v) { return v.visitConstant(this); }
+}
@@ -0,0 +1,34 @@
+package vexpressions;
+
+/** Replaces operators on constants by their value; division by zero is left alone. */
+class ConstantFolding extends RewritePass {
+  protected Expr plus(Plus e, Expr l, Expr r) {
+    return both(l, r) ? new Constant(ExprOptimizer.value(l) + ExprOptimizer.value(r)) : super.plus(e, l, r);
+  }
+  protected Expr minus(Minus e, Expr l, Expr r) {
+    return both(l, r) ? new Constant(ExprOptimizer.value(l) - ExprOptimizer.value(r)) : super.minus(e, l, r);
+  }
+  protected Expr times(Times e, Expr l, Expr r) {
+    return both(l, r) ? new Constant(ExprOptimizer.value(l) * ExprOptimizer.value(r)) : super.times(e, l, r);
+  }
+  protected Expr div(Div e, Expr l, Expr r) {
+    return both(l, r) && ExprOptimizer.value(r) != 0
+      ? new Constant(ExprOptimizer.value(l) / ExprOptimizer.value(r)) : super.div(e, l, r);
+  }
+  protected Expr mod(Mod e, Expr l, Expr r) {
+    return both(l, r) && ExprOptimizer.value(r) != 0
+      ? new Constant(ExprOptimizer.value(l) % ExprOptimizer.value(r)) : super.mod(e, l, r);
+  }
+  protected Expr uminus(UMinus e, Expr x) {
+    return ExprOptimizer.isConstant(x) ? new Constant(- ExprOptimizer.value(x)) : super.uminus(e, x);
+  }
+  protected Expr shiftLeft(ShiftLeft e, Expr x) {
+    return ExprOptimizer.isConstant(x) ? new Constant(ExprOptimizer.value(x) << e.getShift()) : super.shiftLeft(e, x);
+  }
+  protected Expr divByConstant(DivByConstant e, Expr x) {
+    return ExprOptimizer.isConstant(x) ? new Constant(e.divide(ExprOptimizer.value(x))) : super.divByConstant(e, x);
+  }
+  private static boolean both(Expr l, Expr r) {
+    return ExprOptimizer.isConstant(l) && ExprOptimizer.isConstant(r);
+  }
+}
@@ -0,0 +1,62 @@
+package vexpressions;
+
+/**
+ * Division by a constant other than 0, 1, -1 and Integer.MIN_VALUE,
+ * produced by strength reduction. It multiplies by a precomputed magic
+ * number, keeps the high word and corrects the rounding (Hacker's
+ * Delight, ch. 10), giving the same truncated quotient as '/'.
+ */
+class DivByConstant implements Expr {
+  protected final Expr e;
+  protected final int divisor;
+  protected final int magic;
+  protected final int shift;
+  protected final long size;
+  protected final boolean hasColumn;
+  public DivByConstant(Expr e, int divisor) {
+    if (divisor == 0 || divisor == 1 || divisor == -1 || divisor == Integer.MIN_VALUE) {
+      throw new IllegalArgumentException("no magic number for " + divisor);
+    }
+    this.e = e;
+    this.size = 1 + e.getSize();
+    this.hasColumn = e.hasColumn();
+    this.divisor = divisor;
+    // search for the smallest p with 2^p > anc * (2^p mod |d|), all unsigned
+    final long two31 = 0x80000000L;
+    long ad = Math.abs((long) divisor);
+    long t = two31 + ((divisor & 0xFFFFFFFFL) >>> 31);
+    long anc = t - 1 - t % ad;
+    int p = 31;
+    long q1 = two31 / anc, r1 = two31 - q1 * anc;
+    long q2 = two31 / ad, r2 = two31 - q2 * ad;
+    long delta;
+    do {
+      p ++;
+      q1 = 2 * q1; r1 = 2 * r1;
+      if (r1 >= anc) { q1 ++; r1 -= anc; }
+      q2 = 2 * q2; r2 = 2 * r2;
+      if (r2 >= ad) { q2 ++; r2 -= ad; }
+      delta = ad - r2;
+    } while (q1 < delta || (q1 == delta && r1 == 0));
+    int m = (int) (q2 + 1);
+    this.magic = divisor < 0 ? - m : m;
+    this.shift = p - 32;
+  }
+  public Expr getExpr() { return e; }
+  public int getDivisor() { return divisor; }
+  public long getSize() { return size; }
+  public boolean hasColumn() { return hasColumn; }
+  public int divide(int x) {
+    int q = (int) (((long) magic * x) >> 32);
+    if (divisor > 0 && magic < 0) { q += x; }
+    if (divisor < 0 && magic > 0) { q -= x; }
+    q >>= shift;
+    return q + (q >>> 31);
+  }
+  public <Result> Result accept(ExprVisitor<Result> v) { 
+    return ((LoweredExprVisitor<Result>) v).visitDivByConstant(this); 
+  }
+  public int acceptInt(IntExprVisitor v) {
+    return ((LoweredIntExprVisitor) v).visitDivByConstant(this);
+  }
+}
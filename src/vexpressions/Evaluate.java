@@ -0,0 +1,19 @@
+package vexpressions;
+
+class Evaluate implements ExprVisitor<Integer> {
+  public Integer visitConstant(Constant e) { 
+    return e.getValue(); 
+  }
+  public Integer visitPlus(Plus e) {
+    return e.getLeft().accept(this) + e.getRight().accept(this);
+  }
+  public Integer visitMinus(Minus e)  {
+    return e.getLeft().accept(this) - e.getRight().accept(this);
+  }
+  public Integer visitTimes(Times e) {
+    return e.getLeft().accept(this) * e.getRight().accept(this);
+  }
+  public Integer visitDiv(Div e) {
+    return e.getLeft().accept(this) / e.getRight().accept(this);
+  }
+}
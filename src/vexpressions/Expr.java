@@ -0,0 +1,10 @@
+package vexpressions;
+
+interface Expr {
+  <Result> Result accept(ExprVisitor<Result> v);
+  int acceptInt(IntExprVisitor v);
+  /** Nodes in this subtree, counted as a tree; computed once at construction. */
+  long getSize();
+  /** Whether this subtree contains a Column; computed once at construction. */
+  boolean hasColumn();
+}
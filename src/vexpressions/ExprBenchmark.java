@@ -0,0 +1,183 @@
+package vexpressions;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Times repeated evaluation of one randomly generated formula with each
+ * evaluation strategy in this package, checks that all of them agree,
+ * and prints nanoseconds and bytes allocated per evaluation for several
+ * rounds. Finally evaluates a formula over int columns, once row by row
+ * and once with BatchEvaluator; there an evaluation covers all rows.
+ * Usage: java vexpressions.ExprBenchmark [depth] [evaluations] [rows]
+ */
+public class ExprBenchmark {
+
+  /** Keeps results alive so the JIT cannot drop the work. */
+  static volatile int blackhole;
+
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    int evaluations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+    int rows = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+    final Expr e = random(depth, new Random(42));
+    final int expected = e.accept(new ExtendedEvaluate());
+    System.out.println("nodes = " + count(e) + ", result = " + expected);
+
+    final CompiledExpr compiled = ExprCompiler.compile(e);
+    final ExtendedEvaluate boxed = new ExtendedEvaluate();
+    final ExtendedIntEvaluate unboxed = new ExtendedIntEvaluate();
+    final Expr optimized = new ExprOptimizer().optimize(e);
+    final LoweredIntEvaluate lowered = new LoweredIntEvaluate();
+    System.out.println("optimized nodes = " + count(optimized));
+    for (int round = 0; round < 5; round ++) {
+      time("ExtendedEvaluate", expected, evaluations, new Strategy() {
+        public int run() { return e.accept(boxed); }
+      });
+      time("ExtendedIntEvaluate", expected, evaluations, new Strategy() {
+        public int run() { return e.acceptInt(unboxed); }
+      });
+      time("ExprOptimizer", expected, evaluations, new Strategy() {
+        public int run() { return optimized.acceptInt(lowered); }
+      });
+      time("ExprCompiler", expected, evaluations, new Strategy() {
+        public int run() { return compiled.eval(); }
+      });
+      System.out.println();
+    }
+
+    // a formula made of structurally equal but separately built copies
+    final Expr repeated = new Plus(
+      new Times(random(depth, new Random(7)), random(depth, new Random(8))),
+      new Minus(random(depth, new Random(8)), new UMinus(random(depth, new Random(7)))));
+    final int same = repeated.accept(new ExtendedEvaluate());
+    final ExprDag dag = ExprDag.build(repeated);
+    final int[] slots = new int[dag.distinctNodes()];
+    System.out.println("repeated: " + dag);
+    for (int round = 0; round < 5; round ++) {
+      time("ExtendedIntEvaluate", same, evaluations, new Strategy() {
+        public int run() { return repeated.acceptInt(unboxed); }
+      });
+      time("ExprDag", same, evaluations, new Strategy() {
+        public int run() { return dag.evaluate(slots); }
+      });
+      System.out.println();
+    }
+
+    // one formula over four columns, results summed so they can be compared
+    Random random = new Random(42);
+    final int[][] columns = new int[4][rows];
+    for (int[] column : columns) {
+      for (int r = 0; r < rows; r ++) { column[r] = random.nextInt(2001) - 1000; }
+    }
+    final Expr formula = new ExprOptimizer().optimize(random(depth, columns.length, random));
+    final ColumnIntEvaluate perRow = new ColumnIntEvaluate(columns);
+    final BatchEvaluator batch = BatchEvaluator.compile(formula);
+    final int[] result = new int[rows];
+    final int checksum = sum(formula, perRow, rows);
+    System.out.println("columns: " + count(formula) + " nodes, " + rows + " rows");
+    for (int round = 0; round < 5; round ++) {
+      time("ColumnIntEvaluate", checksum, 5, new Strategy() {
+        public int run() { return sum(formula, perRow, result.length); }
+      });
+      time("BatchEvaluator", checksum, 5, new Strategy() {
+        public int run() {
+          batch.evaluate(columns, result);
+          int s = 0;
+          for (int v : result) { s += v; }
+          return s;
+        }
+      });
+      System.out.println();
+    }
+  }
+
+  static int sum(Expr formula, ColumnIntEvaluate perRow, int rows) {
+    int s = 0;
+    for (int r = 0; r < rows; r ++) {
+      perRow.setRow(r);
+      s += formula.acceptInt(perRow);
+    }
+    return s;
+  }
+
+  interface Strategy {
+    int run();
+  }
+
+  static void time(String name, int expected, int evaluations, Strategy s) {
+    int result = 0;
+    long before = allocatedBytes();
+    long start = System.nanoTime();
+    for (int k = 0; k < evaluations; k ++) { result = s.run(); }
+    long nanos = System.nanoTime() - start;
+    long bytes = allocatedBytes() - before;
+    if (result != expected) {
+      throw new IllegalStateException(name + " returned " + result + " instead of " + expected);
+    }
+    blackhole = result;
+    System.out.println(String.format("%-24s %10.1f ns/eval %10.1f B/eval",
+      name, (double) nanos / evaluations, (double) bytes / evaluations));
+  }
+
+  /** Bytes allocated so far by this thread, or -1 if the JVM cannot tell. */
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * A random formula of the given depth over all six node types. Divisors
+   * are non-zero constants so evaluation never throws.
+   */
+  static Expr random(int depth, Random random) {
+    if (depth <= 1) { return new Constant(random.nextInt(2001) - 1000); }
+    switch (random.nextInt(6)) {
+    case 0: return new Plus(random(depth - 1, random), random(depth - 1, random));
+    case 1: return new Minus(random(depth - 1, random), random(depth - 1, random));
+    case 2: return new Times(random(depth - 1, random), random(depth - 1, random));
+    case 3: return new Div(random(depth - 1, random), divisor(random));
+    case 4: return new Mod(random(depth - 1, random), divisor(random));
+    default: return new UMinus(random(depth - 1, random));
+    }
+  }
+
+  /** Like random(depth, random), with half of the leaves reading one of the columns. */
+  static Expr random(int depth, int columns, Random random) {
+    if (depth <= 1) {
+      return random.nextBoolean() ? new Column(random.nextInt(columns)) : new Constant(random.nextInt(2001) - 1000);
+    }
+    switch (random.nextInt(6)) {
+    case 0: return new Plus(random(depth - 1, columns, random), random(depth - 1, columns, random));
+    case 1: return new Minus(random(depth - 1, columns, random), random(depth - 1, columns, random));
+    case 2: return new Times(random(depth - 1, columns, random), random(depth - 1, columns, random));
+    case 3: return new Div(random(depth - 1, columns, random), divisor(random));
+    case 4: return new Mod(random(depth - 1, columns, random), divisor(random));
+    default: return new UMinus(random(depth - 1, columns, random));
+    }
+  }
+
+  static Expr divisor(Random random) {
+    int d = random.nextInt(19) - 9;
+    return new Constant(d == 0 ? 7 : d);
+  }
+
+  static int count(Expr e) {
+    return e.accept(new ColumnExprVisitor<Integer>() {
+      public Integer visitConstant(Constant c) { return 1; }
+      public Integer visitColumn(Column c) { return 1; }
+      public Integer visitPlus(Plus p) { return 1 + p.getLeft().accept(this) + p.getRight().accept(this); }
+      public Integer visitMinus(Minus m) { return 1 + m.getLeft().accept(this) + m.getRight().accept(this); }
+      public Integer visitTimes(Times t) { return 1 + t.getLeft().accept(this) + t.getRight().accept(this); }
+      public Integer visitDiv(Div d) { return 1 + d.getLeft().accept(this) + d.getRight().accept(this); }
+      public Integer visitMod(Mod m) { return 1 + m.getLeft().accept(this) + m.getRight().accept(this); }
+      public Integer visitUMinus(UMinus u) { return 1 + u.getExpr().accept(this); }
+      public Integer visitShiftLeft(ShiftLeft s) { return 1 + s.getExpr().accept(this); }
+      public Integer visitDivByConstant(DivByConstant d) { return 1 + d.getExpr().accept(this); }
+    });
+  }
+}
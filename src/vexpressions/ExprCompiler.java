@@ -0,0 +1,275 @@
+package vexpressions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Compiles an Expr tree, including the UMinus and Mod extensions and the
+ * lowered nodes produced by ExprOptimizer, into a
+ * hidden class whose eval() method is the tree's straight-line bytecode:
+ * push constants, apply iadd/isub/imul/idiv/irem/ineg, return. The JIT then
+ * sees one small method without visitor dispatch or boxing. Division by
+ * zero still throws ArithmeticException when eval() runs.
+ *
+ * The code is emitted from an explicit stack of pending subtrees and
+ * operators rather than by recursion, so deep trees compile without
+ * overflowing the thread's stack. Compiled expressions are cached per
+ * tree (by identity, weakly), so compiling the same tree again is a map
+ * lookup. Trees whose code would exceed the 64K method limit are not
+ * compiled; they get an adapter that runs LoweredEvaluate instead. Every
+ * node takes at least one byte of code, so trees of that many nodes are
+ * sent there before anything is emitted, and emitting stops as soon as
+ * the code outgrows the limit. The adapter holds on to its tree, so it is
+ * not cached: as a WeakHashMap value it would keep its own key alive.
+ * Column has no value without a row and is rejected; formulas over
+ * columns are evaluated with BatchEvaluator.
+ */
+class ExprCompiler implements ColumnExprVisitor<Void> {
+
+  private static final Map<Expr, CompiledExpr> cache = new WeakHashMap<Expr, CompiledExpr>();
+  private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+  private static final int MAX_CODE = 65535;
+
+  private static final String NAME = "vexpressions/CompiledFormula";
+  private static final String INTERFACE = "vexpressions/CompiledExpr";
+
+  // fixed part of the constant pool
+  private static final int THIS_CLASS = 2, SUPER_CLASS = 4, INTERFACE_CLASS = 6;
+  private static final int INIT_NAME = 7, VOID_DESCRIPTOR = 8, OBJECT_INIT = 10;
+  private static final int EVAL_NAME = 11, INT_DESCRIPTOR = 12, CODE = 13, FIXED_ENTRIES = 14;
+
+  private static final Op IADD = new Op(0x60, 2), ISUB = new Op(0x64, 2), IMUL = new Op(0x68, 2);
+  private static final Op IDIV = new Op(0x6c, 2), IREM = new Op(0x70, 2), INEG = new Op(0x74, 1);
+  private static final Op ISHL = new Op(0x78, 2);
+
+  private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+  private final Map<Integer, Integer> ints = new HashMap<Integer, Integer>();
+  private final List<Integer> pool = new ArrayList<Integer>();
+  // pending subtrees and operators, and the operand stack depth needed by
+  // each subtree whose code is out but whose operator is not
+  private Object[] stack = new Object[16];
+  private int top;
+  private int[] depths = new int[16];
+  private int operands;
+
+  private ExprCompiler() { }
+
+  /** Returns the compiled form of e, compiling it on first use. */
+  public static CompiledExpr compile(Expr e) {
+    synchronized (cache) {
+      CompiledExpr compiled = cache.get(e);
+      if (compiled == null) {
+        compiled = define(e);
+        if (! (compiled instanceof Interpreted)) { cache.put(e, compiled); }
+      }
+      return compiled;
+    }
+  }
+
+  private static CompiledExpr define(Expr e) {
+    if (e.hasColumn()) {
+      throw new IllegalArgumentException("Column has no value without a row;"
+          + " evaluate formulas with columns with BatchEvaluator");
+    }
+    if (e.getSize() + 1 > MAX_CODE) { return new Interpreted(e); }
+    ExprCompiler c = new ExprCompiler();
+    int maxStack = c.emit(e);
+    if (c.code.size() + 1 > MAX_CODE) { return new Interpreted(e); }
+    c.code.write(0xac); // ireturn
+    try {
+      Class<?> type = lookup.defineHiddenClass(c.classFile(maxStack), true).lookupClass();
+      return (CompiledExpr) lookup.findConstructor(type, MethodType.methodType(void.class)).invoke();
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Throwable t) {
+      throw new IllegalStateException("cannot define compiled expression", t);
+    }
+  }
+
+  /**
+   * Emits code leaving e's value on the operand stack and returns the
+   * stack depth it needs. Stops early once the code is too long.
+   */
+  private int emit(Expr e) {
+    push(e);
+    while (top > 0 && code.size() < MAX_CODE) {
+      Object item = stack[-- top];
+      stack[top] = null;
+      if (item instanceof Op) {
+        apply((Op) item);
+      } else {
+        ((Expr) item).accept(this);
+      }
+    }
+    return depths[0];
+  }
+
+  private void push(Object item) {
+    if (top == stack.length) { stack = Arrays.copyOf(stack, top << 1); }
+    stack[top ++] = item;
+  }
+
+  /** Emits the operator once its operands are out and combines their depths. */
+  private void apply(Op op) {
+    if (op.arity == 2) {
+      operands --;
+      depths[operands - 1] = Math.max(depths[operands - 1], depths[operands] + 1);
+    }
+    code.write(op.opcode);
+  }
+
+  // each visit emits a leaf, or pushes an operator and then its operands
+
+  public Void visitConstant(Constant e) {
+    pushConstant(e.getValue());
+    if (operands == depths.length) { depths = Arrays.copyOf(depths, operands << 1); }
+    depths[operands ++] = 1;
+    return null;
+  }
+  public Void visitColumn(Column e) { throw new AssertionError("rejected by define()"); }
+  public Void visitPlus(Plus e) { return binary(e.getLeft(), e.getRight(), IADD); }
+  public Void visitMinus(Minus e) { return binary(e.getLeft(), e.getRight(), ISUB); }
+  public Void visitTimes(Times e) { return binary(e.getLeft(), e.getRight(), IMUL); }
+  public Void visitDiv(Div e) { return binary(e.getLeft(), e.getRight(), IDIV); }
+  public Void visitMod(Mod e) { return binary(e.getLeft(), e.getRight(), IREM); }
+  public Void visitUMinus(UMinus e) {
+    push(INEG);
+    push(e.getExpr());
+    return null;
+  }
+
+  public Void visitShiftLeft(ShiftLeft e) {
+    return binary(e.getExpr(), new Constant(e.getShift()), ISHL);
+  }
+  /** Emits a plain idiv; the JIT applies its own magic-number division to it. */
+  public Void visitDivByConstant(DivByConstant e) {
+    return binary(e.getExpr(), new Constant(e.getDivisor()), IDIV);
+  }
+
+  private Void binary(Expr left, Expr right, Op op) {
+    push(op);
+    push(right);
+    push(left);
+    return null;
+  }
+
+  private void pushConstant(int v) {
+    if (v >= -1 && v <= 5) {
+      code.write(0x03 + v); // iconst_<v>
+    } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+      code.write(0x10); // bipush
+      code.write(v);
+    } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+      code.write(0x11); // sipush
+      u2(v);
+    } else {
+      int index = constant(v);
+      if (index < 256) {
+        code.write(0x12); // ldc
+        code.write(index);
+      } else {
+        code.write(0x13); // ldc_w
+        u2(index);
+      }
+    }
+  }
+
+  private void u2(int v) {
+    code.write(v >>> 8);
+    code.write(v);
+  }
+
+  private int constant(int v) {
+    Integer index = ints.get(v);
+    if (index == null) {
+      index = FIXED_ENTRIES + pool.size();
+      pool.add(v);
+      ints.put(v, index);
+    }
+    return index;
+  }
+
+  private byte[] classFile(int maxStack) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    out.writeShort(52); // Java 8 format; straight-line code needs no stack map
+    out.writeShort(FIXED_ENTRIES + pool.size());
+    utf8(out, NAME);                                            // 1
+    out.writeByte(7); out.writeShort(1);                        // 2 class
+    utf8(out, "java/lang/Object");                              // 3
+    out.writeByte(7); out.writeShort(3);                        // 4 class
+    utf8(out, INTERFACE);                                       // 5
+    out.writeByte(7); out.writeShort(5);                        // 6 class
+    utf8(out, "<init>");                                        // 7
+    utf8(out, "()V");                                           // 8
+    out.writeByte(12); out.writeShort(7); out.writeShort(8);    // 9 name and type
+    out.writeByte(10); out.writeShort(4); out.writeShort(9);    // 10 method ref
+    utf8(out, "eval");                                          // 11
+    utf8(out, "()I");                                           // 12
+    utf8(out, "Code");                                          // 13
+    for (int v : pool) { out.writeByte(3); out.writeInt(v); }   // 14.. integers
+    out.writeShort(0x0031); // public final super
+    out.writeShort(THIS_CLASS);
+    out.writeShort(SUPER_CLASS);
+    out.writeShort(1);
+    out.writeShort(INTERFACE_CLASS);
+    out.writeShort(0); // fields
+    out.writeShort(2); // methods
+    // public <init>() { super(); }
+    byte[] init = { 0x2a, (byte) 0xb7, (byte) (OBJECT_INIT >>> 8), (byte) OBJECT_INIT, (byte) 0xb1 };
+    method(out, INIT_NAME, VOID_DESCRIPTOR, 1, init);
+    // public int eval() { ... }
+    method(out, EVAL_NAME, INT_DESCRIPTOR, maxStack, code.toByteArray());
+    out.writeShort(0); // class attributes
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void utf8(DataOutputStream out, String s) throws IOException {
+    out.writeByte(1);
+    out.writeUTF(s);
+  }
+
+  private static void method(DataOutputStream out, int name, int descriptor,
+      int maxStack, byte[] body) throws IOException {
+    out.writeShort(0x0001); // public
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(1);
+    out.writeShort(CODE);
+    out.writeInt(12 + body.length);
+    out.writeShort(maxStack);
+    out.writeShort(1); // max locals: this
+    out.writeInt(body.length);
+    out.write(body);
+    out.writeShort(0); // exception table
+    out.writeShort(0); // code attributes
+  }
+
+  /** An opcode to emit after the code of its one or two operands. */
+  private static final class Op {
+    final int opcode, arity;
+    Op(int opcode, int arity) {
+      this.opcode = opcode;
+      this.arity = arity;
+    }
+  }
+
+  /** Fallback for trees too large for one method. */
+  private static final class Interpreted implements CompiledExpr {
+    private final Expr e;
+    Interpreted(Expr e) { this.e = e; }
+    public int eval() { return e.accept(new LoweredEvaluate()); }
+  }
+}
@@ -0,0 +1,182 @@
+package vexpressions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Common-subexpression elimination. An ExprDag numbers every structurally
+ * distinct subexpression once, children before parents, and evaluates the
+ * formula by filling one slot per distinct node in that order, so a
+ * subtree that occurs many times is computed once per evaluation. Works on
+ * trees and on DAGs (e.g. the output of CommonSubexpressions), including
+ * the UMinus/Mod extensions and the lowered nodes. Column has no value
+ * without a row and is rejected with IllegalArgumentException.
+ */
+class ExprDag {
+
+  static final int CONST = 0, PLUS = 1, MINUS = 2, TIMES = 3, DIV = 4, MOD = 5;
+  static final int NEG = 6, SHL = 7, DIVC = 8;
+
+  // node i computes op[i] from slots left[i] and right[i]; for CONST,
+  // SHL and DIVC the constant, shift or divisor is in right[i]
+  private final int[] op;
+  private final int[] left;
+  private final int[] right;
+  private final long treeNodes;
+
+  private ExprDag(int[] op, int[] left, int[] right, long treeNodes) {
+    this.op = op;
+    this.left = left;
+    this.right = right;
+    this.treeNodes = treeNodes;
+  }
+
+  public static ExprDag build(Expr e) {
+    Builder b = new Builder();
+    b.build(e);
+    int n = b.size;
+    int[] op = new int[n], left = new int[n], right = new int[n];
+    System.arraycopy(b.op, 0, op, 0, n);
+    System.arraycopy(b.left, 0, left, 0, n);
+    System.arraycopy(b.right, 0, right, 0, n);
+    return new ExprDag(op, left, right, b.treeNodes.get(e));
+  }
+
+  public int evaluate() {
+    return evaluate(new int[op.length]);
+  }
+
+  /** Evaluates using the caller's slot array of at least distinctNodes() ints. */
+  public int evaluate(int[] slot) {
+    int[] op = this.op, left = this.left, right = this.right;
+    for (int i = 0; i < op.length; i ++) {
+      switch (op[i]) {
+      case CONST: slot[i] = right[i]; break;
+      case PLUS: slot[i] = slot[left[i]] + slot[right[i]]; break;
+      case MINUS: slot[i] = slot[left[i]] - slot[right[i]]; break;
+      case TIMES: slot[i] = slot[left[i]] * slot[right[i]]; break;
+      case DIV: slot[i] = slot[left[i]] / slot[right[i]]; break;
+      case MOD: slot[i] = slot[left[i]] % slot[right[i]]; break;
+      case NEG: slot[i] = - slot[left[i]]; break;
+      case SHL: slot[i] = slot[left[i]] << right[i]; break;
+      case DIVC: slot[i] = slot[left[i]] / right[i]; break;
+      default: throw new IllegalStateException("bad opcode " + op[i]);
+      }
+    }
+    return slot[op.length - 1];
+  }
+
+  /** Nodes the formula has when written out as a tree. */
+  public long treeNodes() { return treeNodes; }
+
+  /** Distinct nodes, i.e. slots computed per evaluation. */
+  public int distinctNodes() { return op.length; }
+
+  /** Tree nodes that did not need a slot of their own. */
+  public long deduplicated() { return treeNodes - op.length; }
+
+  public String toString() {
+    return treeNodes + " tree nodes, " + op.length + " distinct, " + deduplicated() + " deduplicated";
+  }
+
+  /** Structural identity of a node once its children have slots. */
+  private static final class Key {
+    final int op, left, right;
+    Key(int op, int left, int right) { this.op = op; this.left = left; this.right = right; }
+    public boolean equals(Object o) {
+      if (! (o instanceof Key)) { return false; }
+      Key k = (Key) o;
+      return op == k.op && left == k.left && right == k.right;
+    }
+    public int hashCode() { return (op * 31 + left) * 0x9E3779B1 + right; }
+  }
+
+  /**
+   * Postorder walk numbering each node's slot, driven from an explicit
+   * stack so that deep trees cannot overflow the thread's stack; shared
+   * input nodes are numbered once. A node stays on the stack until its
+   * operands have slots.
+   */
+  private static final class Builder implements ColumnExprVisitor<Void> {
+    final Map<Key, Integer> slots = new HashMap<Key, Integer>();
+    final Map<Expr, Integer> visited = new IdentityHashMap<Expr, Integer>();
+    final Map<Expr, Long> treeNodes = new IdentityHashMap<Expr, Long>();
+    int[] op = new int[64], left = new int[64], right = new int[64];
+    int size;
+
+    // the node being described: its opcode, operands (x2 null for unary
+    // nodes, both null for constants) and constant
+    private int o;
+    private Expr x1, x2;
+    private int constant;
+
+    void build(Expr root) {
+      Expr[] stack = new Expr[16];
+      int top = 0;
+      stack[top ++] = root;
+      while (top > 0) {
+        Expr e = stack[top - 1];
+        if (visited.containsKey(e)) { top --; continue; }
+        e.accept(this);
+        boolean ready = true;
+        if (top + 2 > stack.length) { stack = Arrays.copyOf(stack, stack.length << 1); }
+        if (x2 != null && ! visited.containsKey(x2)) { stack[top ++] = x2; ready = false; }
+        if (x1 != null && ! visited.containsKey(x1)) { stack[top ++] = x1; ready = false; }
+        if (! ready) { continue; }
+        top --;
+        if (x1 == null) {
+          slot(e, o, 0, constant, 1);
+        } else if (x2 == null) {
+          slot(e, o, visited.get(x1), constant, 1 + treeNodes.get(x1));
+        } else {
+          slot(e, o, visited.get(x1), visited.get(x2), 1 + treeNodes.get(x1) + treeNodes.get(x2));
+        }
+      }
+    }
+
+    private void slot(Expr e, int o, int l, int r, long nodes) {
+      Key key = new Key(o, l, r);
+      Integer s = slots.get(key);
+      if (s == null) {
+        if (size == op.length) {
+          op = Arrays.copyOf(op, size << 1);
+          left = Arrays.copyOf(left, size << 1);
+          right = Arrays.copyOf(right, size << 1);
+        }
+        op[size] = o;
+        left[size] = l;
+        right[size] = r;
+        s = size ++;
+        slots.put(key, s);
+      }
+      visited.put(e, s);
+      treeNodes.put(e, nodes);
+    }
+
+    private Void describe(int o, Expr x1, Expr x2, int constant) {
+      this.o = o;
+      this.x1 = x1;
+      this.x2 = x2;
+      this.constant = constant;
+      return null;
+    }
+
+    public Void visitConstant(Constant e) { return describe(CONST, null, null, e.getValue()); }
+    public Void visitColumn(Column e) {
+      throw new IllegalArgumentException("ExprDag cannot evaluate Column(" + e.getIndex()
+          + ") without a row; use BatchEvaluator");
+    }
+    public Void visitPlus(Plus e) { return describe(PLUS, e.getLeft(), e.getRight(), 0); }
+    public Void visitMinus(Minus e) { return describe(MINUS, e.getLeft(), e.getRight(), 0); }
+    public Void visitTimes(Times e) { return describe(TIMES, e.getLeft(), e.getRight(), 0); }
+    public Void visitDiv(Div e) { return describe(DIV, e.getLeft(), e.getRight(), 0); }
+    public Void visitMod(Mod e) { return describe(MOD, e.getLeft(), e.getRight(), 0); }
+    public Void visitUMinus(UMinus e) { return describe(NEG, e.getExpr(), null, 0); }
+    public Void visitShiftLeft(ShiftLeft e) { return describe(SHL, e.getExpr(), null, e.getShift()); }
+    public Void visitDivByConstant(DivByConstant e) {
+      return describe(DIVC, e.getExpr(), null, e.getDivisor());
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package vexpressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs a pipeline of rewrite passes over an Expr until none of them changes
+ * the tree any more. The default pipeline folds constants, applies
+ * algebraic identities and reduces strength (multiplication by a power of
+ * two becomes ShiftLeft, division by other constants becomes
+ * DivByConstant). Every rewrite keeps int overflow behaviour, and a
+ * subtree that could divide by zero is never folded or dropped, so the
+ * optimized tree throws ArithmeticException exactly when the original
+ * does. Optimized trees may contain lowered nodes and must be evaluated
+ * with a LoweredExprVisitor such as LoweredEvaluate, or compiled. Column
+ * nodes are left in place, so formulas over columns can be optimized
+ * before they are handed to BatchEvaluator.
+ */
+class ExprOptimizer {
+
+  /** Upper bound on pipeline rounds; each round strictly shrinks or lowers the tree. */
+  static final int MAX_ROUNDS = 64;
+
+  private final List<RewritePass> passes;
+
+  /** Constant folding, algebraic identities, strength reduction. */
+  public ExprOptimizer() {
+    this(new ConstantFolding(), new AlgebraicIdentities(), new StrengthReduction());
+  }
+
+  public ExprOptimizer(RewritePass... passes) {
+    this.passes = Collections.unmodifiableList(new ArrayList<RewritePass>(Arrays.asList(passes)));
+  }
+
+  public List<RewritePass> getPasses() { return passes; }
+
+  public Expr optimize(Expr e) {
+    for (int round = 0; round < MAX_ROUNDS; round ++) {
+      Expr before = e;
+      for (RewritePass pass : passes) { e = e.accept(pass); }
+      if (e == before) { break; }
+    }
+    return e;
+  }
+
+  /** Whether evaluating e could throw, i.e. it divides by something not known to be non-zero. */
+  static boolean canThrow(Expr e) {
+    return e.accept(new ColumnExprVisitor<Boolean>() {
+      public Boolean visitConstant(Constant c) { return false; }
+      public Boolean visitColumn(Column c) { return false; }
+      public Boolean visitPlus(Plus p) { return p.getLeft().accept(this) || p.getRight().accept(this); }
+      public Boolean visitMinus(Minus m) { return m.getLeft().accept(this) || m.getRight().accept(this); }
+      public Boolean visitTimes(Times t) { return t.getLeft().accept(this) || t.getRight().accept(this); }
+      public Boolean visitDiv(Div d) { return divides(d.getLeft(), d.getRight()); }
+      public Boolean visitMod(Mod m) { return divides(m.getLeft(), m.getRight()); }
+      public Boolean visitUMinus(UMinus u) { return u.getExpr().accept(this); }
+      public Boolean visitShiftLeft(ShiftLeft s) { return s.getExpr().accept(this); }
+      public Boolean visitDivByConstant(DivByConstant d) { return d.getExpr().accept(this); }
+      private boolean divides(Expr left, Expr right) {
+        return ! isConstant(right) || value(right) == 0 || left.accept(this);
+      }
+    });
+  }
+
+  static boolean isConstant(Expr e) { return e instanceof Constant; }
+  static int value(Expr e) { return ((Constant) e).getValue(); }
+  static boolean is(Expr e, int v) { return isConstant(e) && value(e) == v; }
+}
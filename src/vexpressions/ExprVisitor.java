@@ -0,0 +1,9 @@
+package vexpressions;
+
+interface ExprVisitor<Result> {
+  Result visitConstant(Constant s);
+  Result visitPlus(Plus s);
+  Result visitMinus(Minus s);
+  Result visitTimes(Times s);
+  Result visitDiv(Div s);
+}
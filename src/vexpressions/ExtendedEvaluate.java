@@ -0,0 +1,10 @@
+package vexpressions;
+
+class ExtendedEvaluate extends Evaluate implements ExtendedExprVisitor<Integer> {
+  public Integer visitUMinus(UMinus e) {
+    return - e.getExpr().accept(this);
+  }
+  public Integer visitMod(Mod e) {
+    return e.getLeft().accept(this) % e.getRight().accept(this);
+  }
+}
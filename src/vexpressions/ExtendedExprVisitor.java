@@ -0,0 +1,6 @@
+package vexpressions;
+
+interface ExtendedExprVisitor<Result> extends ExprVisitor<Result> {
+  Result visitUMinus(UMinus e);
+  Result visitMod(Mod e);
+}
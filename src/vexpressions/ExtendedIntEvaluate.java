@@ -0,0 +1,10 @@
+package vexpressions;
+
+class ExtendedIntEvaluate extends IntEvaluate implements ExtendedIntExprVisitor {
+  public int visitUMinus(UMinus e) {
+    return - e.getExpr().acceptInt(this);
+  }
+  public int visitMod(Mod e) {
+    return e.getLeft().acceptInt(this) % e.getRight().acceptInt(this);
+  }
+}
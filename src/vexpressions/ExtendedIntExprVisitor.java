@@ -0,0 +1,6 @@
+package vexpressions;
+
+interface ExtendedIntExprVisitor extends IntExprVisitor {
+  int visitUMinus(UMinus e);
+  int visitMod(Mod e);
+}
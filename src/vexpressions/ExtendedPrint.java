@@ -0,0 +1,39 @@
+package vexpressions;
+
+class ExtendedPrint extends Print implements ExtendedExprVisitor<String> {
+  public ExtendedPrint() { }
+  public ExtendedPrint(String prefix) { super(prefix); }
+  /** Factory method. */
+  protected ExprVisitor<String> newPrint(String prefix) { 
+    return new ExtendedPrint(prefix); 
+  }
+  public String visitUMinus(UMinus e) {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append("UMinus(");
+    result.append(EOL);
+//    Print v = new ExtendedPrint(prefix + INDENT);
+    ExprVisitor<String> v = newPrint(prefix + INDENT);
+    result.append(e.getExpr().accept(v));
+    result.append(EOL);
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+  public String visitMod(Mod e) {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append("Mod(");
+    result.append(EOL);
+//    Print v = new ExtendedPrint(prefix + INDENT);
+    ExprVisitor<String> v = newPrint(prefix + INDENT);
+    result.append(e.getLeft().accept(v));
+    result.append(",");
+    result.append(EOL);
+    result.append(e.getRight().accept(v));
+    result.append(EOL);
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+}
@@ -0,0 +1,20 @@
+package vexpressions;
+
+/** Same results as Evaluate without boxing any intermediate value. */
+class IntEvaluate implements IntExprVisitor {
+  public int visitConstant(Constant e) { 
+    return e.getValue(); 
+  }
+  public int visitPlus(Plus e) {
+    return e.getLeft().acceptInt(this) + e.getRight().acceptInt(this);
+  }
+  public int visitMinus(Minus e)  {
+    return e.getLeft().acceptInt(this) - e.getRight().acceptInt(this);
+  }
+  public int visitTimes(Times e) {
+    return e.getLeft().acceptInt(this) * e.getRight().acceptInt(this);
+  }
+  public int visitDiv(Div e) {
+    return e.getLeft().acceptInt(this) / e.getRight().acceptInt(this);
+  }
+}
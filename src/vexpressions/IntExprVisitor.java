@@ -0,0 +1,10 @@
+package vexpressions;
+
+/** Visitor returning a primitive int, so no visit boxes its result. */
+interface IntExprVisitor {
+  int visitConstant(Constant s);
+  int visitPlus(Plus s);
+  int visitMinus(Minus s);
+  int visitTimes(Times s);
+  int visitDiv(Div s);
+}
@@ -0,0 +1,10 @@
+package vexpressions;
+
+class LoweredEvaluate extends ExtendedEvaluate implements LoweredExprVisitor<Integer> {
+  public Integer visitShiftLeft(ShiftLeft e) {
+    return e.getExpr().accept(this) << e.getShift();
+  }
+  public Integer visitDivByConstant(DivByConstant e) {
+    return e.divide(e.getExpr().accept(this));
+  }
+}
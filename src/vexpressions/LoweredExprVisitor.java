@@ -0,0 +1,6 @@
+package vexpressions;
+
+interface LoweredExprVisitor<Result> extends ExtendedExprVisitor<Result> {
+  Result visitShiftLeft(ShiftLeft e);
+  Result visitDivByConstant(DivByConstant e);
+}
@@ -0,0 +1,10 @@
+package vexpressions;
+
+class LoweredIntEvaluate extends ExtendedIntEvaluate implements LoweredIntExprVisitor {
+  public int visitShiftLeft(ShiftLeft e) {
+    return e.getExpr().acceptInt(this) << e.getShift();
+  }
+  public int visitDivByConstant(DivByConstant e) {
+    return e.divide(e.getExpr().acceptInt(this));
+  }
+}
@@ -0,0 +1,6 @@
+package vexpressions;
+
+interface LoweredIntExprVisitor extends ExtendedIntExprVisitor {
+  int visitShiftLeft(ShiftLeft e);
+  int visitDivByConstant(DivByConstant e);
+}
@@ -0,0 +1,32 @@
+package vexpressions;
+
+class LoweredPrint extends ExtendedPrint implements LoweredExprVisitor<String> {
+  public LoweredPrint() { }
+  public LoweredPrint(String prefix) { super(prefix); }
+  /** Factory method. */
+  protected ExprVisitor<String> newPrint(String prefix) { 
+    return new LoweredPrint(prefix); 
+  }
+  public String visitShiftLeft(ShiftLeft e) {
+    return unary("ShiftLeft", e.getExpr(), e.getShift());
+  }
+  public String visitDivByConstant(DivByConstant e) {
+    return unary("DivByConstant", e.getExpr(), e.getDivisor());
+  }
+  private String unary(String name, Expr operand, int constant) {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append(name);
+    result.append("(");
+    result.append(EOL);
+    result.append(operand.accept(newPrint(prefix + INDENT)));
+    result.append(",");
+    result.append(EOL);
+    result.append(prefix + INDENT);
+    result.append(constant);
+    result.append(EOL);
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+}
@@ -0,0 +1,134 @@
+package vexpressions;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates large trees on a ForkJoinPool. From a node larger than the
+ * threshold the current thread walks down into the larger operand, in a
+ * loop rather than by recursion, so deep chains cannot overflow its stack.
+ * The other operand of a binary node is forked as a task if it is larger
+ * than the threshold too and evaluated in place otherwise; since a forked
+ * operand is at most half its parent, tasks nest only logarithmically
+ * deep. Subtrees up to the threshold are handed to a sequential
+ * LoweredIntEvaluate, so no thread recurses deeper than the threshold.
+ * Subtree sizes come from Expr.getSize(), which every node computes once
+ * when it is built. Results, including ArithmeticException on division by
+ * zero, are those of Evaluate. A Column has no value without a row, so a
+ * formula containing one is rejected before any evaluation starts.
+ */
+class ParallelEvaluate {
+
+  /** Smallest subtree worth a task of its own; also bounds recursion depth. */
+  static final long DEFAULT_THRESHOLD = 1 << 12;
+
+  private final ForkJoinPool pool;
+  private final long threshold;
+  private final LoweredIntEvaluate sequential = new LoweredIntEvaluate();
+
+  public ParallelEvaluate() { this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD); }
+
+  public ParallelEvaluate(ForkJoinPool pool, long threshold) {
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+
+  /** Evaluates e in this evaluator's pool. */
+  public int evaluate(Expr e) {
+    if (e.hasColumn()) {
+      throw new IllegalArgumentException("Column has no value without a row; use BatchEvaluator");
+    }
+    return pool.invoke(new Task(e));
+  }
+
+  /** Evaluates e in the current thread, forking large side operands. */
+  private int compute(Expr e) {
+    Operands operands = new Operands();
+    Apply apply = new Apply();
+    Expr[] spine = new Expr[16];
+    Task[] forked = new Task[16];
+    int[] values = new int[16];
+    boolean[] wentLeft = new boolean[16];
+    int depth = 0;
+    Expr n = e;
+    while (n.getSize() > threshold) {
+      n.accept(operands);
+      if (operands.left == null) { break; }
+      if (depth == spine.length) {
+        spine = Arrays.copyOf(spine, depth << 1);
+        forked = Arrays.copyOf(forked, depth << 1);
+        values = Arrays.copyOf(values, depth << 1);
+        wentLeft = Arrays.copyOf(wentLeft, depth << 1);
+      }
+      spine[depth] = n;
+      forked[depth] = null;
+      if (operands.right == null) {
+        wentLeft[depth] = true;
+        n = operands.left;
+      } else {
+        boolean left = operands.left.getSize() >= operands.right.getSize();
+        Expr other = left ? operands.right : operands.left;
+        wentLeft[depth] = left;
+        if (other.getSize() > threshold) {
+          forked[depth] = new Task(other);
+          forked[depth].fork();
+        } else {
+          values[depth] = other.acceptInt(sequential);
+        }
+        n = left ? operands.left : operands.right;
+      }
+      depth ++;
+    }
+    int v = n.acceptInt(sequential);
+    while (depth > 0) {
+      depth --;
+      int o = forked[depth] != null ? forked[depth].join() : values[depth];
+      if (wentLeft[depth]) { apply.l = v; apply.r = o; } else { apply.l = o; apply.r = v; }
+      v = spine[depth].acceptInt(apply);
+    }
+    return v;
+  }
+
+  private final class Task extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+    private final Expr e;
+    Task(Expr e) { this.e = e; }
+    protected Integer compute() { return ParallelEvaluate.this.compute(e); }
+  }
+
+  /** Records a node's operands; right is null for unary nodes, both for leaves. */
+  private static final class Operands implements ColumnExprVisitor<Void> {
+    Expr left, right;
+    public Void visitConstant(Constant e) { return set(null, null); }
+    public Void visitColumn(Column e) { return set(null, null); }
+    public Void visitPlus(Plus e) { return set(e.getLeft(), e.getRight()); }
+    public Void visitMinus(Minus e) { return set(e.getLeft(), e.getRight()); }
+    public Void visitTimes(Times e) { return set(e.getLeft(), e.getRight()); }
+    public Void visitDiv(Div e) { return set(e.getLeft(), e.getRight()); }
+    public Void visitMod(Mod e) { return set(e.getLeft(), e.getRight()); }
+    public Void visitUMinus(UMinus e) { return set(e.getExpr(), null); }
+    public Void visitShiftLeft(ShiftLeft e) { return set(e.getExpr(), null); }
+    public Void visitDivByConstant(DivByConstant e) { return set(e.getExpr(), null); }
+    private Void set(Expr l, Expr r) {
+      left = l;
+      right = r;
+      return null;
+    }
+  }
+
+  /** Computes a node from operand values l (and r) without visiting its children. */
+  private static final class Apply implements ColumnIntExprVisitor {
+    int l, r;
+    public int visitConstant(Constant e) { return e.getValue(); }
+    public int visitColumn(Column e) { throw new AssertionError("rejected by evaluate()"); }
+    public int visitPlus(Plus e) { return l + r; }
+    public int visitMinus(Minus e) { return l - r; }
+    public int visitTimes(Times e) { return l * r; }
+    public int visitDiv(Div e) { return l / r; }
+    public int visitMod(Mod e) { return l % r; }
+    public int visitUMinus(UMinus e) { return - l; }
+    public int visitShiftLeft(ShiftLeft e) { return l << e.getShift(); }
+    public int visitDivByConstant(DivByConstant e) { return e.divide(l); }
+  }
+}
@@ -0,0 +1,68 @@
+package vexpressions;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Evaluates one large random formula sequentially and with ParallelEvaluate
+ * on pools of 1 to N threads, checks every result against Evaluate and
+ * prints the best time of several rounds with the speedup over the
+ * sequential LoweredIntEvaluate.
+ * Usage: java vexpressions.ParallelSpeedup [depth] [threshold] [threads]
+ */
+public class ParallelSpeedup {
+
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 24;
+    long threshold = args.length > 1 ? Long.parseLong(args[1]) : ParallelEvaluate.DEFAULT_THRESHOLD;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+    Expr e = balanced(depth, new Random(42));
+    int expected = e.accept(new ExtendedEvaluate());
+    System.out.println("nodes = " + e.getSize() + ", result = " + expected + ", cores = "
+        + Runtime.getRuntime().availableProcessors());
+
+    LoweredIntEvaluate sequential = new LoweredIntEvaluate();
+    long base = Long.MAX_VALUE;
+    for (int round = 0; round < 10; round ++) {
+      long start = System.nanoTime();
+      check(expected, e.acceptInt(sequential));
+      base = Math.min(base, System.nanoTime() - start);
+    }
+    System.out.println(String.format("sequential     %8.2f ms", base / 1e6));
+
+    for (int p = 1; p <= threads; p ++) {
+      ForkJoinPool pool = new ForkJoinPool(p);
+      ParallelEvaluate parallel = new ParallelEvaluate(pool, threshold);
+      long best = Long.MAX_VALUE;
+      for (int round = 0; round < 10; round ++) {
+        long start = System.nanoTime();
+        check(expected, parallel.evaluate(e));
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      pool.shutdown();
+      System.out.println(String.format("%2d thread(s)   %8.2f ms (speedup %.1fx)",
+          p, best / 1e6, (double) base / best));
+    }
+  }
+
+  /**
+   * A bushy formula of the given depth, mostly Plus and Minus so the result
+   * does not collapse to 0 the way long products do. Div divides by a
+   * non-zero constant.
+   */
+  static Expr balanced(int depth, Random random) {
+    if (depth <= 1) { return new Constant(random.nextInt(2001) - 1000); }
+    switch (random.nextInt(8)) {
+    case 0: return new Times(balanced(depth - 1, random), balanced(depth - 1, random));
+    case 1: return new Div(balanced(depth - 1, random), ExprBenchmark.divisor(random));
+    case 2: case 3: case 4: return new Minus(balanced(depth - 1, random), balanced(depth - 1, random));
+    default: return new Plus(balanced(depth - 1, random), balanced(depth - 1, random));
+    }
+  }
+
+  static void check(int expected, int actual) {
+    if (expected != actual) {
+      throw new IllegalStateException("expected " + expected + " but got " + actual);
+    }
+  }
+}
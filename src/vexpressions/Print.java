@@ -0,0 +1,78 @@
+package vexpressions;
+
+class Print implements ExprVisitor<String> {
+  protected static final String EOL = System.getProperty("line.separator");
+  protected static final String INDENT = "  ";
+  protected final String prefix;
+  public Print() { this(""); }
+  public Print(String prefix) { this.prefix = prefix; }
+  /** Factory method. */
+  protected ExprVisitor<String> newPrint(String prefix) { return new Print(prefix); }
+  public String visitConstant(Constant e) { return prefix + e.getValue(); }
+  public String visitPlus(Plus e) {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append("Plus(");
+    result.append(EOL);
+//    Print v = new Print(prefix + INDENT);
+    ExprVisitor<String> v = newPrint(prefix + INDENT);
+//    prefix = prefix + INDENT;
+    result.append(e.getLeft().accept(v));
+    result.append(",");
+    result.append(EOL);
+    result.append(e.getRight().accept(v));
+    result.append(EOL);
+//    prefix = prefix.substring(0, prefix.length() - INDENT.length());
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+  public String visitMinus(Minus e)  {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append("Minus(");
+    result.append(EOL);
+//    Print v = new Print(prefix + INDENT);
+    ExprVisitor<String> v = newPrint(prefix + INDENT);
+    result.append(e.getLeft().accept(v));
+    result.append(",");
+    result.append(EOL);
+    result.append(e.getRight().accept(v));
+    result.append(EOL);
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+  public String visitTimes(Times e) {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append("Times(");
+    result.append(EOL);
+//    Print v = new Print(prefix + INDENT);
+    ExprVisitor<String> v = newPrint(prefix + INDENT);
+    result.append(e.getLeft().accept(v));
+    result.append(",");
+    result.append(EOL);
+    result.append(e.getRight().accept(v));
+    result.append(EOL);
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+  public String visitDiv(Div e) {
+    StringBuffer result = new StringBuffer();
+    result.append(prefix);
+    result.append("Div(");
+    result.append(EOL);
+//    Print v = new Print(prefix + INDENT);
+    ExprVisitor<String> v = newPrint(prefix + INDENT);
+    result.append(e.getLeft().accept(v));
+    result.append(",");
+    result.append(EOL);
+    result.append(e.getRight().accept(v));
+    result.append(EOL);
+    result.append(prefix);
+    result.append(")");
+    return result.toString();
+  }
+}
@@ -0,0 +1,45 @@
+package vexpressions;
+
+/**
+ * Base class for rewrite passes. Each visit rewrites the children first and
+ * then hands the node and its new children to a hook; the default hooks
+ * rebuild the node only if a child changed, so an untouched tree comes back
+ * as the same instance.
+ */
+abstract class RewritePass implements ColumnExprVisitor<Expr> {
+  public Expr visitConstant(Constant e) { return e; }
+  public Expr visitColumn(Column e) { return e; }
+  public Expr visitPlus(Plus e) { return plus(e, e.getLeft().accept(this), e.getRight().accept(this)); }
+  public Expr visitMinus(Minus e) { return minus(e, e.getLeft().accept(this), e.getRight().accept(this)); }
+  public Expr visitTimes(Times e) { return times(e, e.getLeft().accept(this), e.getRight().accept(this)); }
+  public Expr visitDiv(Div e) { return div(e, e.getLeft().accept(this), e.getRight().accept(this)); }
+  public Expr visitMod(Mod e) { return mod(e, e.getLeft().accept(this), e.getRight().accept(this)); }
+  public Expr visitUMinus(UMinus e) { return uminus(e, e.getExpr().accept(this)); }
+  public Expr visitShiftLeft(ShiftLeft e) { return shiftLeft(e, e.getExpr().accept(this)); }
+  public Expr visitDivByConstant(DivByConstant e) { return divByConstant(e, e.getExpr().accept(this)); }
+
+  protected Expr plus(Plus e, Expr l, Expr r) {
+    return l == e.getLeft() && r == e.getRight() ? e : new Plus(l, r);
+  }
+  protected Expr minus(Minus e, Expr l, Expr r) {
+    return l == e.getLeft() && r == e.getRight() ? e : new Minus(l, r);
+  }
+  protected Expr times(Times e, Expr l, Expr r) {
+    return l == e.getLeft() && r == e.getRight() ? e : new Times(l, r);
+  }
+  protected Expr div(Div e, Expr l, Expr r) {
+    return l == e.getLeft() && r == e.getRight() ? e : new Div(l, r);
+  }
+  protected Expr mod(Mod e, Expr l, Expr r) {
+    return l == e.getLeft() && r == e.getRight() ? e : new Mod(l, r);
+  }
+  protected Expr uminus(UMinus e, Expr x) {
+    return x == e.getExpr() ? e : new UMinus(x);
+  }
+  protected Expr shiftLeft(ShiftLeft e, Expr x) {
+    return x == e.getExpr() ? e : new ShiftLeft(x, e.getShift());
+  }
+  protected Expr divByConstant(DivByConstant e, Expr x) {
+    return x == e.getExpr() ? e : new DivByConstant(x, e.getDivisor());
+  }
+}
@@ -0,0 +1,28 @@
+package vexpressions;
+
+/**
+ * Multiplication by 2^shift, produced by strength reduction. Shifting
+ * wraps around exactly like multiplying does.
+ */
+class ShiftLeft implements Expr {
+  protected final Expr e;
+  protected final int shift;
+  protected final long size;
+  protected final boolean hasColumn;
+  public ShiftLeft(Expr e, int shift) {
+    this.e = e;
+    this.shift = shift;
+    size = 1 + e.getSize();
+    hasColumn = e.hasColumn();
+  }
+  public Expr getExpr() { return e; }
+  public int getShift() { return shift; }
+  public long getSize() { return size; }
+  public boolean hasColumn() { return hasColumn; }
+  public <Result> Result accept(ExprVisitor<Result> v) { 
+    return ((LoweredExprVisitor<Result>) v).visitShiftLeft(this); 
+  }
+  public int acceptInt(IntExprVisitor v) {
+    return ((LoweredIntExprVisitor) v).visitShiftLeft(this);
+  }
+}
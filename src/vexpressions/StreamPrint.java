@@ -0,0 +1,175 @@
+package vexpressions;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the format of Print, ExtendedPrint, LoweredPrint and ColumnPrint
+ * straight into one Appendable. Print builds a string per subtree that
+ * every ancestor copies again; here each character is written once. The
+ * tree is walked from an explicit stack of pending subtrees and closing
+ * tokens rather than by recursion, so arbitrarily deep trees print without
+ * overflowing the thread's stack; besides that stack the only state is one
+ * indentation buffer that grows to the depth of the tree and is reused for
+ * every line. All node types are understood. IOExceptions of the
+ * Appendable are rethrown as UncheckedIOException by print(Expr) and as
+ * IOException by the static print() methods.
+ */
+class StreamPrint {
+
+  protected static final String EOL = Print.EOL;
+  protected static final String INDENT = Print.INDENT;
+
+  /** Writer buffer used by print(Expr, File). */
+  static final int FILE_BUFFER = 1 << 16;
+
+  // stack tokens besides pending Exprs and the Strings of constant lines
+  private static final Object SEPARATOR = new Object(), CLOSE = new Object();
+
+  private final Appendable out;
+  private final StringBuilder indent = new StringBuilder();
+  private final Expand expand = new Expand();
+  private Object[] stack = new Object[16];
+  private int top;
+
+  public StreamPrint(Appendable out) { this(out, ""); }
+
+  public StreamPrint(Appendable out, String prefix) {
+    this.out = out;
+    indent.append(prefix);
+  }
+
+  /** Prints e to out exactly as e.accept(new ExtendedPrint(prefix)) would return it. */
+  public static void print(Expr e, Appendable out, String prefix) throws IOException {
+    try {
+      new StreamPrint(out, prefix).print(e);
+    } catch (UncheckedIOException x) {
+      throw x.getCause();
+    }
+  }
+
+  /**
+   * Prints e to a UTF-8 file followed by a line separator. Memory use is
+   * bounded by the writer buffer, the stack and the indentation of the
+   * deepest line, however large the tree.
+   */
+  public static void print(Expr e, File file) throws IOException {
+    Writer w = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), FILE_BUFFER);
+    try {
+      print(e, w, "");
+      w.write(EOL);
+    } finally {
+      w.close();
+    }
+  }
+
+  /** Prints e at the current indentation. */
+  public void print(Expr e) {
+    int bottom = top;
+    push(e);
+    while (top > bottom) {
+      Object item = stack[-- top];
+      stack[top] = null;
+      if (item == SEPARATOR) {
+        append(",");
+        append(EOL);
+      } else if (item == CLOSE) {
+        indent.setLength(indent.length() - INDENT.length());
+        append(EOL);
+        line();
+        append(")");
+      } else if (item instanceof String) {
+        line();
+        append((String) item);
+      } else {
+        ((Expr) item).accept(expand);
+      }
+    }
+  }
+
+  private void push(Object item) {
+    if (top == stack.length) { stack = Arrays.copyOf(stack, top << 1); }
+    stack[top ++] = item;
+  }
+
+  /** Prints a leaf, or opens a node and pushes what follows its first line. */
+  private final class Expand implements ColumnExprVisitor<Void> {
+    public Void visitConstant(Constant e) {
+      line();
+      append(Integer.toString(e.getValue()));
+      return null;
+    }
+    public Void visitColumn(Column e) {
+      line();
+      append("Column(");
+      append(Integer.toString(e.getIndex()));
+      append(")");
+      return null;
+    }
+    public Void visitPlus(Plus e) { return binary("Plus(", e.getLeft(), e.getRight()); }
+    public Void visitMinus(Minus e) { return binary("Minus(", e.getLeft(), e.getRight()); }
+    public Void visitTimes(Times e) { return binary("Times(", e.getLeft(), e.getRight()); }
+    public Void visitDiv(Div e) { return binary("Div(", e.getLeft(), e.getRight()); }
+    public Void visitMod(Mod e) { return binary("Mod(", e.getLeft(), e.getRight()); }
+    public Void visitUMinus(UMinus e) {
+      open("UMinus(");
+      push(CLOSE);
+      push(e.getExpr());
+      return null;
+    }
+    public Void visitShiftLeft(ShiftLeft e) { return unary("ShiftLeft(", e.getExpr(), e.getShift()); }
+    public Void visitDivByConstant(DivByConstant e) {
+      return unary("DivByConstant(", e.getExpr(), e.getDivisor());
+    }
+
+    private Void binary(String name, Expr left, Expr right) {
+      open(name);
+      push(CLOSE);
+      push(right);
+      push(SEPARATOR);
+      push(left);
+      return null;
+    }
+
+    private Void unary(String name, Expr operand, int constant) {
+      open(name);
+      push(CLOSE);
+      push(Integer.toString(constant));
+      push(SEPARATOR);
+      push(operand);
+      return null;
+    }
+  }
+
+  /** Starts a node and indents its children; the matching CLOSE outdents. */
+  private void open(String name) {
+    line();
+    append(name);
+    append(EOL);
+    indent.append(INDENT);
+  }
+
+  private void line() {
+    try {
+      out.append(indent, 0, indent.length());
+    } catch (IOException x) {
+      throw new UncheckedIOException(x);
+    }
+  }
+
+  private void append(String s) {
+    try {
+      out.append(s);
+    } catch (IOException x) {
+      throw new UncheckedIOException(x);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package vexpressions;
+
+/**
+ * Multiplication by a power of two (other than 1) becomes ShiftLeft, and
+ * division by a constant other than 0, 1, -1 and Integer.MIN_VALUE becomes
+ * DivByConstant, which multiplies by a magic number instead of dividing.
+ */
+class StrengthReduction extends RewritePass {
+  protected Expr times(Times e, Expr l, Expr r) {
+    if (powerOfTwo(r)) { return new ShiftLeft(l, Integer.numberOfTrailingZeros(ExprOptimizer.value(r))); }
+    if (powerOfTwo(l)) { return new ShiftLeft(r, Integer.numberOfTrailingZeros(ExprOptimizer.value(l))); }
+    return super.times(e, l, r);
+  }
+  protected Expr div(Div e, Expr l, Expr r) {
+    if (ExprOptimizer.isConstant(r)) {
+      int d = ExprOptimizer.value(r);
+      if (d != 0 && d != 1 && d != -1 && d != Integer.MIN_VALUE) { return new DivByConstant(l, d); }
+    }
+    return super.div(e, l, r);
+  }
+  private static boolean powerOfTwo(Expr e) {
+    return ExprOptimizer.isConstant(e) && ExprOptimizer.value(e) != 1
+      && Integer.bitCount(ExprOptimizer.value(e)) == 1;
+  }
+}
@@ -0,0 +1,21 @@
+package vexpressions;
+
+class Times implements Expr {
+  protected final Expr lt, rt;
+  protected final long size;
+  protected final boolean hasColumn;
+  public Times(Expr l, Expr r) {
+    lt = l;
+    rt = r;
+    size = 1 + l.getSize() + r.getSize();
+    hasColumn = l.hasColumn() || r.hasColumn();
+  }
+  public Expr getLeft() { return lt; }
+  public Expr getRight() { return rt; }
+  public long getSize() { return size; }
+  public boolean hasColumn() { return hasColumn; }
+  public <Result> Result accept(ExprVisitor<Result> v) { 
+    return v.visitTimes(this); 
+  }
+  public int acceptInt(IntExprVisitor v) { return v.visitTimes(this); }
+}
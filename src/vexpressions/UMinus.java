@@ -0,0 +1,17 @@
+package vexpressions;
+
+class UMinus implements Expr {
+  protected final Expr e;
+  protected final long size;
+  protected final boolean hasColumn;
+  public UMinus(Expr e) { this.e = e; size = 1 + e.getSize(); hasColumn = e.hasColumn(); }
+  public Expr getExpr() { return e; }
+  public long getSize() { return size; }
+  public boolean hasColumn() { return hasColumn; }
+  public <Result> Result accept(ExprVisitor<Result> v) { 
+    return ((ExtendedExprVisitor<Result>) v).visitUMinus(this); 
+  }
+  public int acceptInt(IntExprVisitor v) {
+    return ((ExtendedIntExprVisitor) v).visitUMinus(this);
+  }
+}
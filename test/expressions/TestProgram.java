@@ -0,0 +1,144 @@
+package expressions;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestProgram {
+
+	private static final int[] INTERESTING = { 0, 1, -1, 2, 7, -8, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+	private static final int COLUMNS = 3;
+	// more than two chunks, the last one partial
+	private static final int ROWS = 2 * Program.CHUNK + 17;
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(17);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+	}
+
+	@Test
+	public void testMatchesEvaluate() {
+		int throwing = 0;
+		for (int i = 0; i < 2000; i ++) {
+			Expr e = randomExpr(new Random(i), 6, null, 0);
+			Integer expected = evaluate(e);
+			assertEquals(expected, run(Program.compile(e)));
+			if (expected == null) { throwing ++; }
+		}
+		assertTrue("no formula divided by zero", throwing > 0);
+	}
+
+	@Test
+	public void testDeepChains() {
+		Expr left = new Constant(0), right = new Constant(0);
+		for (int i = 0; i < 1000000; i ++) {
+			left = new Plus(left, new Constant(1));
+			right = new Minus(new Constant(1), right);
+		}
+		Program p = Program.compile(left);
+		assertEquals(2, p.stackSize());
+		assertEquals(1000000, p.evaluate());
+		assertEquals(0, Program.compile(right).evaluate());
+	}
+
+	@Test
+	public void testColumnsMatchRowByRow() {
+		int[][] columns = new int[COLUMNS][ROWS];
+		for (int[] column : columns) {
+			for (int r = 0; r < ROWS; r ++) { column[r] = randomValue(random); }
+		}
+		int[] result = new int[ROWS];
+		int completed = 0;
+		for (int i = 0; i < 200; i ++) {
+			Program p = Program.compile(randomExpr(new Random(i), 5, columns, -1));
+			Integer[] expected = new Integer[ROWS];
+			boolean throwing = false;
+			for (int r = 0; r < ROWS; r ++) {
+				expected[r] = evaluate(randomExpr(new Random(i), 5, columns, r));
+				throwing |= expected[r] == null;
+			}
+			try {
+				p.evaluate(columns, result);
+				assertFalse("no ArithmeticException", throwing);
+				for (int r = 0; r < ROWS; r ++) { assertEquals(expected[r].intValue(), result[r]); }
+				completed ++;
+			} catch (ArithmeticException x) {
+				assertTrue("unexpected ArithmeticException", throwing);
+			}
+		}
+		assertTrue("every formula divided by zero", completed > 0);
+	}
+
+	@Test
+	public void testColumnNeedsRows() {
+		Program p = Program.compile(new Plus(new Column(1), new Constant(1)));
+		try {
+			p.evaluate();
+			fail("evaluated a column without a row");
+		} catch (IllegalStateException x) {
+			// expected
+		}
+		try {
+			p.evaluate(new int[][] { new int[4], new int[3] }, new int[4]);
+			fail("read past the end of a column");
+		} catch (IllegalArgumentException x) {
+			// expected
+		}
+	}
+
+	/** Value of e, or null if it divides by zero. */
+	private static Integer evaluate(Expr e) {
+		try {
+			return e.evaluate();
+		} catch (ArithmeticException x) {
+			return null;
+		}
+	}
+
+	private static Integer run(Program p) {
+		try {
+			return p.evaluate();
+		} catch (ArithmeticException x) {
+			return null;
+		}
+	}
+
+	private static int randomValue(Random random) {
+		return random.nextBoolean() ? INTERESTING[random.nextInt(INTERESTING.length)] : random.nextInt(11) - 5;
+	}
+
+	/**
+	 * A random formula; the same random state gives the same shape. With
+	 * columns, a leaf may read a column: Column nodes for row -1, otherwise
+	 * constants holding that row's values.
+	 */
+	private static Expr randomExpr(Random random, int depth, int[][] columns, int row) {
+		if (depth == 0 || random.nextInt(4) == 0) {
+			if (columns != null && random.nextBoolean()) {
+				int c = random.nextInt(columns.length);
+				return row < 0 ? new Column(c) : new Constant(columns[c][row]);
+			}
+			return new Constant(randomValue(random));
+		}
+		Expr l = randomExpr(random, depth - 1, columns, row);
+		Expr r = randomExpr(random, depth - 1, columns, row);
+		switch (random.nextInt(4)) {
+		case 0: return new Plus(l, r);
+		case 1: return new Minus(l, r);
+		case 2: return new Times(l, r);
+		default: return new Div(l, r);
+		}
+	}
+}
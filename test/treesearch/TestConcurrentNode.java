@@ -0,0 +1,202 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestConcurrentNode {
+
+	private static final int NODES = 200;
+	private static final int THREADS = 4;
+	private static final int MOVES = 20000;
+
+	private ConcurrentNode<Integer> root;
+	private List<ConcurrentNode<Integer>> nodes;
+
+	@Before
+	public void setUp() {
+		root = new ConcurrentNode<Integer>(-1);
+		nodes = new ArrayList<ConcurrentNode<Integer>>();
+		for (int i = 0; i < NODES; i ++) {
+			ConcurrentNode<Integer> parent = i == 0 ? root : nodes.get(i / 2);
+			nodes.add(parent.addChild(i));
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		root = null;
+		nodes = null;
+	}
+
+	@Test
+	public void testInitialShape() {
+		assertEquals(NODES + 1, root.size());
+		assertSame(root, nodes.get(0).parent());
+		assertSame(nodes.get(1), nodes.get(3).parent());
+		checkConsistent(root, new IdentityHashMap<ConcurrentNode<Integer>, Boolean>());
+	}
+
+	@Test
+	public void testRemoveAndAdd() {
+		ConcurrentNode<Integer> a = nodes.get(1);
+		int size = a.size();
+		assertTrue(nodes.get(0).removeChild(a));
+		assertNull(a.parent());
+		assertFalse(nodes.get(0).removeChild(a));
+		assertEquals(NODES + 1 - size, root.size());
+		for (Iterator<Tree<Integer>> i = nodes.get(0).children(); i.hasNext(); ) {
+			assertNotSame(a, i.next());
+		}
+		root.addChild(a);
+		assertSame(root, a.parent());
+		assertEquals(NODES + 1, root.size());
+		checkConsistent(root, new IdentityHashMap<ConcurrentNode<Integer>, Boolean>());
+	}
+
+	@Test
+	public void testRejectsSecondParent() {
+		try {
+			nodes.get(5).addChild(nodes.get(3));
+			fail("attached a node that has a parent");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertSame(nodes.get(1), nodes.get(3).parent());
+	}
+
+	@Test
+	public void testRejectsCycle() {
+		ConcurrentNode<Integer> a = nodes.get(1);
+		nodes.get(0).removeChild(a);
+		try {
+			nodes.get(7).addChild(a);
+			fail("moved a node below its own descendant");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			a.addChild(a);
+			fail("made a node its own child");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertNull(a.parent());
+		checkConsistent(a, new IdentityHashMap<ConcurrentNode<Integer>, Boolean>());
+	}
+
+	@Test
+	public void testSeparateTreesDoNotBlockEachOther() throws Exception {
+		final ConcurrentNode<Integer> other = new ConcurrentNode<Integer>(-2);
+		Thread writer = new Thread() {
+			public void run() {
+				other.addChild(-3);
+				other.removeChild(other.addChild(-4));
+			}
+		};
+		// a writer on root's tree holds its lock meanwhile
+		synchronized (root) {
+			writer.start();
+			writer.join(10000);
+		}
+		assertFalse("writer on a separate tree waited", writer.isAlive());
+		assertEquals(2, other.size());
+	}
+
+	@Test
+	public void testConcurrentMovesKeepTreeConsistent() throws Exception {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] writers = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t ++) {
+			final Random random = new Random(t);
+			writers[t] = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < MOVES; i ++) {
+							move(nodes.get(random.nextInt(NODES)), nodes.get(random.nextInt(NODES)));
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+		}
+		Thread reader = new Thread() {
+			public void run() {
+				try {
+					while (! isInterrupted()) {
+						for (ConcurrentNode<Integer> n : nodes) {
+							Map<Tree<Integer>, Boolean> seen = new IdentityHashMap<Tree<Integer>, Boolean>();
+							for (Iterator<Tree<Integer>> i = n.children(); i.hasNext(); ) {
+								assertNull("child listed twice", seen.put(i.next(), true));
+							}
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		};
+		reader.start();
+		for (Thread w : writers) { w.start(); }
+		for (Thread w : writers) { w.join(); }
+		reader.interrupt();
+		reader.join();
+		if (failure.get() != null) { throw new AssertionError(failure.get()); }
+
+		Map<ConcurrentNode<Integer>, Boolean> reached = new IdentityHashMap<ConcurrentNode<Integer>, Boolean>();
+		for (ConcurrentNode<Integer> n : nodes) {
+			if (n.parent() == null) {
+				checkConsistent(n, reached);
+			}
+		}
+		checkConsistent(root, reached);
+		assertEquals(NODES, reached.size() - 1);
+	}
+
+	/** Moves node below target unless that would make a cycle; other threads may interfere. */
+	private static void move(ConcurrentNode<Integer> node, ConcurrentNode<Integer> target) {
+		ConcurrentNode<Integer> parent = node.parent();
+		if (parent != null && ! parent.removeChild(node)) { return; }
+		try {
+			target.addChild(node);
+		} catch (IllegalArgumentException e) {
+			// target is in node's subtree
+			reattach(node, parent);
+		} catch (IllegalStateException e) {
+			// another thread attached node first
+		}
+	}
+
+	private static void reattach(ConcurrentNode<Integer> node, ConcurrentNode<Integer> parent) {
+		if (parent == null) { return; }
+		try {
+			parent.addChild(node);
+		} catch (RuntimeException e) {
+			// the tree changed meanwhile; node stays a root
+		}
+	}
+
+	/** Checks parents, sizes and that no node is reached twice; returns the size. */
+	private static int checkConsistent(ConcurrentNode<Integer> n, Map<ConcurrentNode<Integer>, Boolean> reached) {
+		assertNull("node reached twice", reached.put(n, true));
+		int size = 1;
+		for (Iterator<Tree<Integer>> i = n.children(); i.hasNext(); ) {
+			ConcurrentNode<Integer> child = (ConcurrentNode<Integer>) i.next();
+			assertSame(n, child.parent());
+			size += checkConsistent(child, reached);
+		}
+		assertEquals(size, n.size());
+		return size;
+	}
+}
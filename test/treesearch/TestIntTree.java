@@ -0,0 +1,88 @@
+package treesearch;
+
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestIntTree {
+
+	private IntTree tree;
+
+	@Before
+	public void setUp() {
+		// 0 (1 (2, 3), 4)
+		tree = new IntTree(new int[] { 0, 1, 2, 3, 4 }, new int[] { 5, 3, 1, 1, 1 });
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		tree = null;
+	}
+
+	@Test
+	public void testChildren() {
+		Iterator<IntTree> i = tree.children();
+		IntTree first = i.next();
+		assertEquals(1, first.data());
+		assertEquals(3, first.size());
+		assertEquals(4, i.next().data());
+		assertFalse(i.hasNext());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBuildCopiesNodes() {
+		Tree<Integer> boxed = new Tree.Node<Integer>(0,
+				new Tree.Node<Integer>(1, new Tree.Node<Integer>(2), new Tree.Node<Integer>(3)),
+				new Tree.Node<Integer>(4));
+		final StringBuilder order = new StringBuilder();
+		IntTree.build(boxed).forEachBreadthFirst(v -> order.append(v));
+		assertEquals("01423", order.toString());
+	}
+
+	@Test
+	public void testRejectsZeroSize() {
+		rejects(new int[] { 3, 0, 1 });
+	}
+
+	@Test
+	public void testRejectsSubtreeLargerThanParent() {
+		rejects(new int[] { 4, 2, 3, 1 });
+		rejects(new int[] { 3, 1, 2 });
+	}
+
+	@Test
+	public void testRejectsWrongRootSize() {
+		rejects(new int[] { 2, 1, 1 });
+		rejects(new int[0]);
+	}
+
+	@Test
+	public void testBuildRejectsEmptyTree() {
+		try {
+			IntTree.build(new Tree.Empty<Integer>());
+			fail("built a tree without nodes");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void rejects(int[] size) {
+		try {
+			new IntTree(new int[size.length], size);
+			fail("accepted sizes that do not describe a tree");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new LongTree(new long[size.length], size);
+			fail("accepted sizes that do not describe a tree");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
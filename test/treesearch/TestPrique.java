@@ -0,0 +1,185 @@
+package treesearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestPrique {
+
+	/** Orders by key only, so elements with equal keys tie. */
+	private static final Comparator<Entry> BY_KEY = new Comparator<Entry>() {
+		public int compare(Entry a, Entry b) { return Integer.compare(a.key, b.key); }
+	};
+
+	private static final Prique.Cost<Entry> KEY_COST = new Prique.Cost<Entry>() {
+		public double cost(Entry e) { return e.key; }
+	};
+
+	private static final class Entry {
+		final int key, id;
+		Entry(int key, int id) { this.key = key; this.id = id; }
+		public String toString() { return key + "#" + id; }
+	}
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(42);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+	}
+
+	@Test
+	public void testInitiallyEmpty() {
+		Prique<Entry> q = new Prique<Entry>(BY_KEY);
+		assertEquals(0, q.size());
+		assertTrue(q.isEmpty());
+		assertNull(q.peek());
+		try {
+			q.remove();
+			fail("removed from an empty queue");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testComparatorOrderAndFifoTies() {
+		for (int arity = 2; arity <= 5; arity ++) {
+			checkStableOrder(new Prique<Entry>(arity, BY_KEY));
+		}
+	}
+
+	@Test
+	public void testCostOrderAndFifoTies() {
+		for (int arity = 2; arity <= 5; arity ++) {
+			checkStableOrder(new Prique<Entry>(arity, KEY_COST));
+		}
+	}
+
+	@Test
+	public void testInterleavedAddAndRemove() {
+		Prique<Entry> q = new Prique<Entry>(BY_KEY);
+		List<Entry> expected = new ArrayList<Entry>();
+		int id = 0;
+		for (int round = 0; round < 2000; round ++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				Entry e = new Entry(random.nextInt(10), id ++);
+				q.add(e);
+				expected.add(e);
+			} else {
+				// a stable sort puts the earliest of the smallest keys first
+				Collections.sort(expected, BY_KEY);
+				assertSame(expected.get(0), q.peek());
+				assertSame(expected.remove(0), q.remove());
+			}
+			assertEquals(expected.size(), q.size());
+		}
+	}
+
+	@Test
+	public void testRemoveWorst() {
+		for (int arity = 2; arity <= 5; arity ++) {
+			Prique<Entry> q = new Prique<Entry>(arity, BY_KEY);
+			List<Entry> expected = new ArrayList<Entry>();
+			for (int i = 0; i < 500; i ++) {
+				Entry e = new Entry(random.nextInt(20), i);
+				q.add(e);
+				expected.add(e);
+				if (random.nextInt(3) == 0) {
+					// the worst is the latest of the largest keys
+					Collections.sort(expected, BY_KEY);
+					assertSame(expected.remove(expected.size() - 1), q.removeWorst());
+				}
+			}
+			Collections.sort(expected, BY_KEY);
+			for (Entry e : expected) {
+				assertSame(e, q.remove());
+			}
+			assertTrue(q.isEmpty());
+		}
+	}
+
+	@Test
+	public void testEqualElementsAreKept() {
+		Prique<Entry> q = new Prique<Entry>(BY_KEY);
+		Entry e = new Entry(1, 0);
+		q.add(e);
+		q.add(e);
+		assertEquals(2, q.size());
+		assertSame(e, q.remove());
+		assertSame(e, q.remove());
+		assertTrue(q.isEmpty());
+	}
+
+	@Test
+	public void testClear() {
+		Prique<Entry> q = new Prique<Entry>(KEY_COST);
+		for (int i = 0; i < 100; i ++) { q.add(new Entry(i, i)); }
+		q.clear();
+		assertTrue(q.isEmpty());
+		q.add(new Entry(3, 0));
+		assertEquals(3, q.remove().key);
+	}
+
+	@Test
+	public void testIteratorSeesAllAndFailsFast() {
+		Prique<Entry> q = new Prique<Entry>(BY_KEY);
+		for (int i = 0; i < 50; i ++) { q.add(new Entry(random.nextInt(10), i)); }
+		boolean[] seen = new boolean[50];
+		for (Entry e : q) {
+			assertFalse(seen[e.id]);
+			seen[e.id] = true;
+		}
+		for (boolean b : seen) { assertTrue(b); }
+		Iterator<Entry> i = q.iterator();
+		i.next();
+		q.remove();
+		try {
+			i.next();
+			fail("iterator survived a modification");
+		} catch (ConcurrentModificationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRejectsNull() {
+		try {
+			new Prique<Entry>(BY_KEY).add(null);
+			fail("added null");
+		} catch (NullPointerException e) {
+			// expected
+		}
+	}
+
+	/** Adds entries with many equal keys and checks they come out sorted by key, then by insertion. */
+	private void checkStableOrder(Prique<Entry> q) {
+		List<Entry> expected = new ArrayList<Entry>();
+		for (int i = 0; i < 1000; i ++) {
+			Entry e = new Entry(random.nextInt(20), i);
+			expected.add(e);
+			q.add(e);
+		}
+		Collections.sort(expected, BY_KEY);
+		for (Entry e : expected) {
+			assertSame(e, q.remove());
+		}
+		assertTrue(q.isEmpty());
+	}
+}
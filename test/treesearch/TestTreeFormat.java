@@ -0,0 +1,119 @@
+package treesearch;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestTreeFormat {
+
+	private static final TreeFormat.Parser<Integer> INTEGER = new TreeFormat.Parser<Integer>() {
+		public Integer parse(String text) { return Integer.valueOf(text.trim()); }
+	};
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(7);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+	}
+
+	@Test
+	public void testLeaf() throws IOException {
+		Tree<String> t = TreeFormat.read(new StringReader("(a)"), TreeFormat.STRING);
+		assertEquals(1, t.size());
+		assertEquals("a", t.data());
+		assertFalse(t.children().hasNext());
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		assertEquals("()", TreeFormat.toString(new Tree.Empty<String>()));
+		assertTrue(TreeFormat.read(new StringReader("()"), TreeFormat.STRING).isEmpty());
+	}
+
+	@Test
+	public void testShape() throws IOException {
+		Tree<String> t = TreeFormat.read(new StringReader("(a, (b, (c)), (d))"), TreeFormat.STRING);
+		assertEquals(4, t.size());
+		assertEquals("a", t.data());
+		Iterator<Tree<String>> i = t.children();
+		Tree<String> b = i.next();
+		assertEquals("b", b.data());
+		assertEquals("c", b.children().next().data());
+		assertEquals("d", i.next().data());
+		assertFalse(i.hasNext());
+	}
+
+	@Test
+	public void testWhitespaceBetweenNodes() throws IOException {
+		Tree<String> t = TreeFormat.read(new StringReader(" (a,\n  (b) ,\t(c)\n)"), TreeFormat.STRING);
+		assertEquals("(a, (b), (c))", TreeFormat.toString(t));
+	}
+
+	@Test
+	public void testRoundTripRandomTrees() throws IOException {
+		for (int i = 0; i < 200; i ++) {
+			Tree<Integer> t = randomTree(6);
+			String text = TreeFormat.toString(t);
+			Tree<Integer> back = TreeFormat.read(new StringReader(text), INTEGER);
+			assertEquals(text, TreeFormat.toString(back));
+			assertEquals(t.size(), back.size());
+		}
+	}
+
+	@Test
+	public void testRoundTripDeepPath() throws IOException {
+		int depth = 100000;
+		Tree<Integer> t = new Tree.Node<Integer>(0);
+		for (int i = 1; i < depth; i ++) {
+			Tree<Integer>[] child = newArray(1);
+			child[0] = t;
+			t = new Tree.Node<Integer>(i, child);
+		}
+		String text = TreeFormat.toString(t);
+		Tree<Integer> back = TreeFormat.read(new StringReader(text), INTEGER);
+		assertEquals(depth, back.size());
+		assertEquals(text, TreeFormat.toString(back));
+	}
+
+	@Test
+	public void testMalformedInput() {
+		String[] bad = { "", "a", "(a", "(a, ", "(a, (b)", "(a, b)", "(a(b))" };
+		for (String text : bad) {
+			try {
+				TreeFormat.read(new StringReader(text), TreeFormat.STRING);
+				fail("accepted " + text);
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("at character"));
+			}
+		}
+	}
+
+	private Tree<Integer> randomTree(int depth) {
+		List<Tree<Integer>> children = new ArrayList<Tree<Integer>>();
+		int n = depth == 0 ? 0 : random.nextInt(4);
+		for (int i = 0; i < n; i ++) {
+			children.add(randomTree(depth - 1));
+		}
+		return new Tree.Node<Integer>(random.nextInt(1000) - 500, children.toArray(newArray(n)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Tree<Integer>[] newArray(int n) {
+		return (Tree<Integer>[]) new Tree<?>[n];
+	}
+}
@@ -0,0 +1,117 @@
+package vexpressions;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestBatchEvaluator {
+
+	private static final int[] INTERESTING = {
+		0, 1, -1, 2, -2, 3, 7, 8, -8, 10, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE
+	};
+
+	private static final int COLUMNS = 3;
+	// more than two chunks, the last one partial
+	private static final int ROWS = 2 * BatchEvaluator.CHUNK + 17;
+
+	private Random random;
+	private int[][] columns;
+
+	@Before
+	public void setUp() {
+		random = new Random(22);
+		columns = new int[COLUMNS][ROWS];
+		for (int[] column : columns) {
+			for (int r = 0; r < ROWS; r ++) { column[r] = randomValue(); }
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+		columns = null;
+	}
+
+	@Test
+	public void testMatchesRowByRow() {
+		ExprOptimizer optimizer = new ExprOptimizer();
+		int completed = 0, throwing = 0;
+		for (int i = 0; i < 300; i ++) {
+			Expr e = randomExpr(5);
+			// the optimizer adds ShiftLeft and DivByConstant nodes
+			for (Expr f : new Expr[] { e, optimizer.optimize(e) }) {
+				if (check(f)) { completed ++; } else { throwing ++; }
+			}
+		}
+		assertTrue("every formula divided by zero", completed > 0);
+		assertTrue("no formula divided by zero", throwing > 0);
+	}
+
+	@Test
+	public void testConstantFormula() {
+		int[] result = new int[ROWS];
+		BatchEvaluator.compile(new Times(new Constant(6), new Constant(7))).evaluate(columns, result);
+		for (int r = 0; r < ROWS; r ++) { assertEquals(42, result[r]); }
+	}
+
+	@Test
+	public void testRejectsShortColumn() {
+		BatchEvaluator b = BatchEvaluator.compile(new Plus(new Column(0), new Column(2)));
+		try {
+			b.evaluate(new int[][] { new int[ROWS], new int[0], new int[ROWS - 1] }, new int[ROWS]);
+			fail("read past the end of a column");
+		} catch (IllegalArgumentException x) {
+			// expected
+		}
+	}
+
+	/**
+	 * Compares BatchEvaluator with ColumnIntEvaluate on every row; returns
+	 * false if both divide by zero.
+	 */
+	private boolean check(Expr e) {
+		ColumnIntEvaluate perRow = new ColumnIntEvaluate(columns);
+		int[] expected = new int[ROWS];
+		boolean throwing = false;
+		for (int r = 0; r < ROWS && ! throwing; r ++) {
+			perRow.setRow(r);
+			try {
+				expected[r] = e.acceptInt(perRow);
+			} catch (ArithmeticException x) {
+				throwing = true;
+			}
+		}
+		int[] result = new int[ROWS];
+		try {
+			BatchEvaluator.compile(e).evaluate(columns, result);
+		} catch (ArithmeticException x) {
+			assertTrue("unexpected ArithmeticException", throwing);
+			return false;
+		}
+		assertFalse("no ArithmeticException", throwing);
+		for (int r = 0; r < ROWS; r ++) { assertEquals(expected[r], result[r]); }
+		return true;
+	}
+
+	private int randomValue() {
+		return random.nextBoolean() ? INTERESTING[random.nextInt(INTERESTING.length)] : random.nextInt(21) - 10;
+	}
+
+	private Expr randomExpr(int depth) {
+		if (depth == 0 || random.nextInt(4) == 0) {
+			return random.nextInt(3) == 0 ? new Column(random.nextInt(COLUMNS)) : new Constant(randomValue());
+		}
+		switch (random.nextInt(6)) {
+		case 0: return new Plus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 1: return new Minus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 2: return new Times(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 3: return new Div(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 4: return new Mod(randomExpr(depth - 1), randomExpr(depth - 1));
+		default: return new UMinus(randomExpr(depth - 1));
+		}
+	}
+}
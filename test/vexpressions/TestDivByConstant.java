@@ -0,0 +1,88 @@
+package vexpressions;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestDivByConstant {
+
+	private static final int[] EDGES = {
+		0, 1, -1, 2, -2, 3, -3, 7, -7, 1 << 16, -(1 << 16), 1 << 30, -(1 << 30),
+		Integer.MAX_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE, Integer.MIN_VALUE + 1
+	};
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(10);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+	}
+
+	@Test
+	public void testRejectsTrivialDivisors() {
+		int[] trivial = { 0, 1, -1, Integer.MIN_VALUE };
+		for (int d : trivial) {
+			try {
+				new DivByConstant(new Constant(1), d);
+				fail("accepted divisor " + d);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testSmallDivisors() {
+		for (int d = 2; d <= 1000; d ++) {
+			check(d);
+			check(- d);
+		}
+	}
+
+	@Test
+	public void testLargeAndPowerOfTwoDivisors() {
+		for (int k = 1; k < 31; k ++) {
+			check(1 << k);
+			check(- (1 << k));
+			check((1 << k) + 1);
+			if (k > 1) { check((1 << k) - 1); }
+		}
+		check(Integer.MAX_VALUE);
+		check(Integer.MIN_VALUE + 1);
+		for (int i = 0; i < 1000; i ++) {
+			int d = random.nextInt();
+			if (d != 0 && d != 1 && d != -1 && d != Integer.MIN_VALUE) { check(d); }
+		}
+	}
+
+	/** Compares divide() with '/' on edge values, a sweep around zero and random dividends. */
+	private void check(int d) {
+		DivByConstant div = new DivByConstant(new Constant(0), d);
+		for (int x : EDGES) {
+			assertDivides(div, x);
+		}
+		for (int x = -10000; x <= 10000; x ++) {
+			assertDivides(div, x);
+		}
+		for (int i = 0; i < 2000; i ++) {
+			int x = random.nextInt();
+			assertDivides(div, x);
+		}
+	}
+
+	private static void assertDivides(DivByConstant div, int x) {
+		int d = div.getDivisor();
+		if (div.divide(x) != x / d) {
+			fail(x + " / " + d + " expected " + x / d + " but was " + div.divide(x));
+		}
+	}
+}
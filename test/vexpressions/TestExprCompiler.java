@@ -0,0 +1,142 @@
+package vexpressions;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestExprCompiler {
+
+	private static final int[] INTERESTING = {
+		0, 1, -1, 2, 5, 6, 127, 128, -129, 32767, 32768, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE
+	};
+
+	// deep, but the code of either chain fits in one method
+	private static final int DEEP = 20000;
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(15);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+	}
+
+	@Test
+	public void testMatchesExtendedEvaluate() {
+		int throwing = 0;
+		for (int i = 0; i < 2000; i ++) {
+			Expr e = randomExpr(6);
+			Integer expected = interpret(e);
+			assertEquals(e.accept(new ExtendedPrint("")), expected, run(ExprCompiler.compile(e)));
+			if (expected == null) { throwing ++; }
+		}
+		assertTrue("no formula divided by zero", throwing > 0);
+	}
+
+	@Test
+	public void testLoweredNodes() {
+		for (int i = 0; i < 500; i ++) {
+			Expr x = randomExpr(3);
+			int shift = random.nextInt(32);
+			int divisor = random.nextBoolean() ? 7 : -100;
+			Integer value = interpret(x);
+			Integer shifted = value == null ? null : value << shift;
+			Integer divided = value == null ? null : value / divisor;
+			assertEquals(shifted, run(ExprCompiler.compile(new ShiftLeft(x, shift))));
+			assertEquals(divided, run(ExprCompiler.compile(new DivByConstant(x, divisor))));
+		}
+	}
+
+	@Test
+	public void testDeepChains() {
+		Expr left = new Constant(0), right = new Constant(0);
+		for (int i = 1; i <= DEEP; i ++) {
+			left = new Plus(left, new Constant(1));
+			right = new Minus(new Constant(1), new UMinus(right));
+		}
+		for (Expr e : new Expr[] { left, right }) {
+			CompiledExpr compiled = ExprCompiler.compile(e);
+			assertTrue(compiled.getClass().isHidden());
+			assertEquals(DEEP, compiled.eval());
+		}
+	}
+
+	@Test
+	public void testTooLargeIsInterpreted() {
+		Expr e = balanced(17);
+		assertTrue(e.getSize() > 65535);
+		CompiledExpr compiled = ExprCompiler.compile(e);
+		assertFalse(compiled.getClass().isHidden());
+		assertEquals(interpret(e), run(compiled));
+	}
+
+	@Test
+	public void testCachesCompiledForm() {
+		Expr e = new Times(new Constant(6), new Constant(7));
+		assertSame(ExprCompiler.compile(e), ExprCompiler.compile(e));
+	}
+
+	@Test
+	public void testRejectsColumn() {
+		Expr[] withColumns = {
+			new Plus(new Constant(1), new Column(0)),
+			new Plus(balanced(17), new Column(0)),
+		};
+		for (Expr e : withColumns) {
+			try {
+				ExprCompiler.compile(e);
+				fail("compiled a formula with a column");
+			} catch (IllegalArgumentException x) {
+				// expected
+			}
+		}
+	}
+
+	/** Value of e, or null if it divides by zero. */
+	private static Integer interpret(Expr e) {
+		try {
+			return e.accept(new ExtendedEvaluate());
+		} catch (ArithmeticException x) {
+			return null;
+		}
+	}
+
+	private static Integer run(CompiledExpr compiled) {
+		try {
+			return compiled.eval();
+		} catch (ArithmeticException x) {
+			return null;
+		}
+	}
+
+	private Expr balanced(int depth) {
+		if (depth == 0) { return new Constant(random.nextInt(100)); }
+		return random.nextBoolean()
+			? new Plus(balanced(depth - 1), balanced(depth - 1))
+			: new Minus(balanced(depth - 1), balanced(depth - 1));
+	}
+
+	private int randomValue() {
+		return random.nextBoolean() ? INTERESTING[random.nextInt(INTERESTING.length)] : random.nextInt(11) - 5;
+	}
+
+	private Expr randomExpr(int depth) {
+		if (depth == 0 || random.nextInt(4) == 0) { return new Constant(randomValue()); }
+		switch (random.nextInt(6)) {
+		case 0: return new Plus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 1: return new Minus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 2: return new Times(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 3: return new Div(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 4: return new Mod(randomExpr(depth - 1), randomExpr(depth - 1));
+		default: return new UMinus(randomExpr(depth - 1));
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package vexpressions;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestExprDag {
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(19);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		random = null;
+	}
+
+	@Test
+	public void testSharesRepeatedSubtrees() {
+		Expr a = new Times(new Plus(new Constant(1), new Constant(2)), new Constant(3));
+		Expr b = new Times(new Plus(new Constant(1), new Constant(2)), new Constant(3));
+		ExprDag dag = ExprDag.build(new Minus(a, b));
+		assertEquals(11, dag.treeNodes());
+		// 1, 2, 3, Plus, Times, Minus
+		assertEquals(6, dag.distinctNodes());
+		assertEquals(5, dag.deduplicated());
+		assertEquals(0, dag.evaluate());
+	}
+
+	@Test
+	public void testMatchesEvaluate() {
+		for (int i = 0; i < 3000; i ++) {
+			Expr e = randomExpr(6);
+			if (random.nextBoolean()) {
+				e = new Plus(e, new Times(e, e));
+			}
+			assertEquals(evaluate(e), dagEvaluate(ExprDag.build(e)));
+		}
+	}
+
+	@Test
+	public void testCommonSubexpressionsMatchEvaluate() {
+		for (int i = 0; i < 3000; i ++) {
+			Expr e = randomExpr(6);
+			CommonSubexpressions cse = new CommonSubexpressions();
+			Expr shared = e.accept(cse);
+			assertEquals(evaluate(e), evaluate(shared));
+			assertSame(shared, shared.accept(cse));
+			assertEquals(cse.distinct(), ExprDag.build(shared).distinctNodes());
+		}
+	}
+
+	@Test
+	public void testCommonSubexpressionsShareInstances() {
+		CommonSubexpressions cse = new CommonSubexpressions();
+		Expr shared = new Plus(
+			new Div(new Constant(6), new Constant(2)),
+			new Div(new Constant(6), new Constant(2))).accept(cse);
+		assertSame(((Plus) shared).getLeft(), ((Plus) shared).getRight());
+		assertEquals(4, cse.distinct());
+	}
+
+	@Test
+	public void testDeepChain() {
+		Expr e = new Constant(1);
+		int expected = 1;
+		for (int i = 0; i < 200000; i ++) {
+			e = new Plus(e, new Constant(i % 7));
+			expected += i % 7;
+		}
+		ExprDag dag = ExprDag.build(e);
+		assertEquals(expected, dag.evaluate());
+		assertEquals(400001, dag.treeNodes());
+	}
+
+	@Test
+	public void testRejectsColumn() {
+		try {
+			ExprDag.build(new Plus(new Column(0), new Constant(1)));
+			fail("built a dag over a column");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("BatchEvaluator"));
+		}
+	}
+
+	/** Value of e, or null if it divides by zero. */
+	private static Integer evaluate(Expr e) {
+		try {
+			return e.accept(new LoweredEvaluate());
+		} catch (ArithmeticException x) {
+			return null;
+		}
+	}
+
+	private static Integer dagEvaluate(ExprDag dag) {
+		try {
+			return dag.evaluate();
+		} catch (ArithmeticException x) {
+			return null;
+		}
+	}
+
+	private Expr randomExpr(int depth) {
+		if (depth == 0 || random.nextInt(4) == 0) {
+			return new Constant(random.nextInt(8) - 2);
+		}
+		switch (random.nextInt(8)) {
+		case 0: return new Plus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 1: return new Minus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 2: return new Times(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 3: return new Div(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 4: return new Mod(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 5: return new UMinus(randomExpr(depth - 1));
+		case 6: return new ShiftLeft(randomExpr(depth - 1), random.nextInt(4));
+		default: return new DivByConstant(randomExpr(depth - 1), random.nextInt(9) + 2);
+		}
+	}
+}
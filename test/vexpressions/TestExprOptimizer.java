@@ -0,0 +1,121 @@
+package vexpressions;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class TestExprOptimizer {
+
+	private static final int[] INTERESTING = {
+		0, 1, -1, 2, -2, 3, 7, 8, -8, 10, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE
+	};
+
+	private static final int COLUMNS = 2;
+
+	private ExprOptimizer optimizer;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		optimizer = new ExprOptimizer();
+		random = new Random(18);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		optimizer = null;
+		random = null;
+	}
+
+	@Test
+	public void testFoldsConstants() {
+		Expr e = optimizer.optimize(new Plus(new Times(new Constant(3), new Constant(4)), new Constant(5)));
+		assertTrue(e instanceof Constant);
+		assertEquals(17, ((Constant) e).getValue());
+	}
+
+	@Test
+	public void testReducesStrength() {
+		assertTrue(optimizer.optimize(new Times(new Column(0), new Constant(8))) instanceof ShiftLeft);
+		assertTrue(optimizer.optimize(new Div(new Column(0), new Constant(7))) instanceof DivByConstant);
+	}
+
+	@Test
+	public void testAppliesIdentities() {
+		Expr x = new Column(0);
+		assertSame(x, optimizer.optimize(new Plus(x, new Constant(0))));
+		assertSame(x, optimizer.optimize(new Times(new Constant(1), x)));
+	}
+
+	@Test
+	public void testKeepsDivisionByZero() {
+		Expr[] throwing = {
+			new Div(new Constant(7), new Constant(0)),
+			new Mod(new Column(0), new Constant(0)),
+			new Times(new Constant(0), new Div(new Constant(1), new Constant(0))),
+			new Minus(new Div(new Column(0), new Column(1)), new Div(new Column(0), new Column(1))),
+		};
+		int[] row = { 5, 0 };
+		for (Expr e : throwing) {
+			assertNull(evaluate(e, row));
+			assertNull(evaluate(optimizer.optimize(e), row));
+		}
+	}
+
+	@Test
+	public void testPreservesResults() {
+		int[] row = new int[COLUMNS];
+		for (int i = 0; i < 5000; i ++) {
+			Expr e = randomExpr(5);
+			Expr o = optimizer.optimize(e);
+			assertTrue(o.getSize() <= e.getSize());
+			for (int r = 0; r < 4; r ++) {
+				for (int c = 0; c < COLUMNS; c ++) { row[c] = randomValue(); }
+				assertEquals(e.accept(new ColumnPrint("")), evaluate(e, row), evaluate(o, row));
+			}
+		}
+	}
+
+	@Test
+	public void testReachesFixedPoint() {
+		for (int i = 0; i < 500; i ++) {
+			Expr o = optimizer.optimize(randomExpr(5));
+			assertSame(o, optimizer.optimize(o));
+		}
+	}
+
+	/** Value of e on one row, or null if it divides by zero. */
+	private static Integer evaluate(Expr e, int[] row) {
+		int[][] columns = new int[row.length][];
+		for (int c = 0; c < row.length; c ++) { columns[c] = new int[] { row[c] }; }
+		int[] result = new int[1];
+		try {
+			BatchEvaluator.compile(e).evaluate(columns, result);
+		} catch (ArithmeticException x) {
+			return null;
+		}
+		return result[0];
+	}
+
+	private int randomValue() {
+		return random.nextBoolean() ? INTERESTING[random.nextInt(INTERESTING.length)] : random.nextInt(21) - 10;
+	}
+
+	private Expr randomExpr(int depth) {
+		if (depth == 0 || random.nextInt(4) == 0) {
+			return random.nextInt(3) == 0 ? new Column(random.nextInt(COLUMNS)) : new Constant(randomValue());
+		}
+		switch (random.nextInt(6)) {
+		case 0: return new Plus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 1: return new Minus(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 2: return new Times(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 3: return new Div(randomExpr(depth - 1), randomExpr(depth - 1));
+		case 4: return new Mod(randomExpr(depth - 1), randomExpr(depth - 1));
+		default: return new UMinus(randomExpr(depth - 1));
+		}
+	}
+}